@@ -0,0 +1,82 @@
+/*
+* @(#)VectorRowConverter.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import jdk.incubator.vector.*;
+
+/** The bulk <code>ColorConversion.HSBtoRGB()</code> loops, written with the
+ * <code>jdk.incubator.vector</code> API so each step handles a whole SIMD
+ * register of pixels.
+ * <P>This needs the incubator module both to compile and to run, so it lives in
+ * its own source folder.  <code>ColorConversion</code> loads it by name, and only
+ * uses it if the JVM was started with <code>--add-modules jdk.incubator.vector</code>
+ * and <code>-Dcom.bric.awt.vector=true</code>.
+ * <P>Every lane does the same float operations, in the same order, as the
+ * scalar loops, and <code>F2I</code> truncates like a Java cast, so the results
+ * are exactly the same.  (There is deliberately no fused multiply-add here: it
+ * would round differently.)  The pixels left over after the last full register
+ * are converted by a scalar loop.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+class VectorRowConverter implements RowConverter {
+
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+
+	public void convertSaturations(int base,float brightness,float k,int pShift,int xShift,
+			float[] saturation,int[] dst,int offset,int length) {
+		FloatVector one = FloatVector.broadcast(FLOATS, 1.0f);
+		int step = FLOATS.length();
+		int bound = FLOATS.loopBound(length);
+		int a = 0;
+		for(; a<bound; a+=step) {
+			FloatVector s = FloatVector.fromArray(FLOATS, saturation, a);
+			FloatVector p = one.sub(s).mul(brightness);
+			FloatVector x = one.sub(s.mul(k)).mul(brightness);
+			IntVector pBits = toChannel(p).lanewise(VectorOperators.LSHL, pShift);
+			IntVector xBits = toChannel(x).lanewise(VectorOperators.LSHL, xShift);
+			pBits.or(xBits).or(base).intoArray(dst, offset+a);
+		}
+		for(; a<length; a++) {
+			float s = saturation[a];
+			float p = brightness * (1.0f - s);
+			float x = brightness * (1.0f - (s * k));
+			dst[offset+a] = base | ((int)(p * 255.0f + 0.5f) << pShift) | ((int)(x * 255.0f + 0.5f) << xShift);
+		}
+	}
+
+	public void convertBrightnesses(float pFactor,float xFactor,int vShift,int pShift,int xShift,
+			float[] brightness,int[] dst,int offset,int length) {
+		int step = FLOATS.length();
+		int bound = FLOATS.loopBound(length);
+		int a = 0;
+		for(; a<bound; a+=step) {
+			FloatVector b = FloatVector.fromArray(FLOATS, brightness, a);
+			IntVector vBits = toChannel(b).lanewise(VectorOperators.LSHL, vShift);
+			IntVector pBits = toChannel(b.mul(pFactor)).lanewise(VectorOperators.LSHL, pShift);
+			IntVector xBits = toChannel(b.mul(xFactor)).lanewise(VectorOperators.LSHL, xShift);
+			vBits.or(pBits).or(xBits).or(0xff000000).intoArray(dst, offset+a);
+		}
+		for(; a<length; a++) {
+			float b = brightness[a];
+			dst[offset+a] = 0xff000000 |
+				((int)(b * 255.0f + 0.5f) << vShift) |
+				((int)(b * pFactor * 255.0f + 0.5f) << pShift) |
+				((int)(b * xFactor * 255.0f + 0.5f) << xShift);
+		}
+	}
+
+	/** @return <code>(int)(v * 255.0f + 0.5f)</code> for each lane. */
+	private static IntVector toChannel(FloatVector v) {
+		return (IntVector)v.mul(255.0f).add(0.5f).convert(VectorOperators.F2I, 0);
+	}
+}
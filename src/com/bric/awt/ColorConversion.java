@@ -0,0 +1,257 @@
+/*
+* @(#)ColorConversion.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import java.awt.*;
+
+/** Static methods to convert between HSB and RGB.
+ * <P>These give exactly the same results as <code>Color.HSBtoRGB()</code>
+ * and <code>Color.RGBtoHSB()</code>, but they are faster for the ways the
+ * color pickers use them:
+ * <ul><li>The bulk forms convert a whole row of colors that share a hue.
+ * The hue sector and its fraction are worked out once for the row, not
+ * once per pixel, so the loop over the row is the same branch-free
+ * arithmetic for every element, which the JIT can vectorize.</li>
+ * <li><code>RGBtoHSB()</code> remembers recent results, because the same
+ * few colors tend to be converted over and over.</li></ul>
+ * <P>The bulk forms can also use loops written with the <code>jdk.incubator.vector</code>
+ * API.  These are only used if this library was built with them, the JVM was started
+ * with <code>--add-modules jdk.incubator.vector</code>, and the system property
+ * <code>com.bric.awt.vector</code> is <code>true</code>.  On JDK 17 they are slower
+ * than the plain loops, so they are off by default.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class ColorConversion {
+
+	/** The number of RGB to HSB conversions remembered. This must be a power of 2. */
+	private static final int MEMO_SIZE = 4096;
+
+	/** One remembered RGB to HSB conversion.  These are immutable, so they can
+	 * be shared between threads without locking.
+	 */
+	private static class Entry {
+		final int rgb;
+		final float hue, sat, bri;
+
+		Entry(int rgb,float hue,float sat,float bri) {
+			this.rgb = rgb;
+			this.hue = hue;
+			this.sat = sat;
+			this.bri = bri;
+		}
+	}
+
+	private static final Entry[] memo = new Entry[MEMO_SIZE];
+
+	/** The Vector API loops for the bulk methods, or <code>null</code> if they
+	 * weren't built or the <code>jdk.incubator.vector</code> module isn't available.
+	 */
+	private static final RowConverter vectorRows = loadVectorRows();
+
+	private static RowConverter loadVectorRows() {
+		if(!Boolean.getBoolean("com.bric.awt.vector"))
+			return null;
+		try {
+			return (RowConverter)Class.forName("com.bric.awt.VectorRowConverter").getDeclaredConstructor().newInstance();
+		} catch(Exception e) {
+			//it wasn't built
+			return null;
+		} catch(LinkageError e) {
+			//the module isn't available
+			return null;
+		}
+	}
+
+	/** Converts HSB to RGB exactly like <code>Color.HSBtoRGB()</code>.
+	 *
+	 * @return an opaque ARGB color.
+	 */
+	public static int HSBtoRGB(float hue,float saturation,float brightness) {
+		if(saturation==0) {
+			int v = (int)(brightness * 255.0f + 0.5f);
+			return 0xff000000 | (v << 16) | (v << 8) | v;
+		}
+		float h = (hue - (float)Math.floor(hue)) * 6.0f;
+		float f = h - (float)Math.floor(h);
+		return toRGB((int)h, f, saturation, brightness);
+	}
+
+	/** Converts a row of colors that share a hue and a brightness.
+	 *
+	 * @param hue the hue of every color.
+	 * @param saturation the saturation of each color.
+	 * @param brightness the brightness of every color.
+	 * @param dst the array to store opaque ARGB colors in.
+	 * @param offset the index in <code>dst</code> of the first color.
+	 * @param length the number of colors to convert.
+	 */
+	public static void HSBtoRGB(float hue,float[] saturation,float brightness,int[] dst,int offset,int length) {
+		float h = (hue - (float)Math.floor(hue)) * 6.0f;
+		float f = h - (float)Math.floor(h);
+		int sector = (int)h;
+		if(sector<0 || sector>5) {
+			for(int a = 0; a<length; a++) {
+				dst[offset+a] = HSBtoRGB(hue, saturation[a], brightness);
+			}
+			return;
+		}
+		/* Each sector holds one channel at the brightness, one at p,
+		 * and one at either q or t.  Pick the channels once, so the loop
+		 * below is the same straight-line arithmetic for every pixel.
+		 * (When the saturation is zero p, q and t all equal the brightness,
+		 * so that case needs no special treatment here.)
+		 */
+		int v = (int)(brightness * 255.0f + 0.5f);
+		int base = 0xff000000 | (v << V_SHIFT[sector]);
+		int pShift = P_SHIFT[sector];
+		int xShift = X_SHIFT[sector];
+		float k = (sector%2==0) ? (1.0f - f) : f;
+		if(vectorRows!=null) {
+			vectorRows.convertSaturations(base, brightness, k, pShift, xShift, saturation, dst, offset, length);
+			return;
+		}
+		for(int a = 0; a<length; a++) {
+			float s = saturation[a];
+			float p = brightness * (1.0f - s);
+			float x = brightness * (1.0f - (s * k));
+			dst[offset+a] = base | ((int)(p * 255.0f + 0.5f) << pShift) | ((int)(x * 255.0f + 0.5f) << xShift);
+		}
+	}
+
+	/** Converts a row of colors that share a hue and a saturation.
+	 *
+	 * @param hue the hue of every color.
+	 * @param saturation the saturation of every color.
+	 * @param brightness the brightness of each color.
+	 * @param dst the array to store opaque ARGB colors in.
+	 * @param offset the index in <code>dst</code> of the first color.
+	 * @param length the number of colors to convert.
+	 */
+	public static void HSBtoRGB(float hue,float saturation,float[] brightness,int[] dst,int offset,int length) {
+		if(saturation==0) {
+			for(int a = 0; a<length; a++) {
+				int v = (int)(brightness[a] * 255.0f + 0.5f);
+				dst[offset+a] = 0xff000000 | (v << 16) | (v << 8) | v;
+			}
+			return;
+		}
+		float h = (hue - (float)Math.floor(hue)) * 6.0f;
+		float f = h - (float)Math.floor(h);
+		int sector = (int)h;
+		if(sector<0 || sector>5) {
+			for(int a = 0; a<length; a++) {
+				dst[offset+a] = HSBtoRGB(hue, saturation, brightness[a]);
+			}
+			return;
+		}
+		/* p, q and t are the brightness times a factor that
+		 * only depends on the hue and the saturation.
+		 */
+		int vShift = V_SHIFT[sector];
+		int pShift = P_SHIFT[sector];
+		int xShift = X_SHIFT[sector];
+		float pFactor = 1.0f - saturation;
+		float xFactor = (sector%2==0) ? 1.0f - (saturation * (1.0f - f)) : 1.0f - saturation * f;
+		if(vectorRows!=null) {
+			vectorRows.convertBrightnesses(pFactor, xFactor, vShift, pShift, xShift, brightness, dst, offset, length);
+			return;
+		}
+		for(int a = 0; a<length; a++) {
+			float b = brightness[a];
+			dst[offset+a] = 0xff000000 |
+				((int)(b * 255.0f + 0.5f) << vShift) |
+				((int)(b * pFactor * 255.0f + 0.5f) << pShift) |
+				((int)(b * xFactor * 255.0f + 0.5f) << xShift);
+		}
+	}
+
+	/** For each sector of the hue: where the channel equal to the brightness goes. */
+	private static final int[] V_SHIFT = new int[] { 16, 8, 8, 0, 0, 16 };
+	/** For each sector of the hue: where the channel equal to p goes. */
+	private static final int[] P_SHIFT = new int[] { 0, 0, 16, 16, 8, 8 };
+	/** For each sector of the hue: where the channel equal to t (in even sectors)
+	 * or q (in odd sectors) goes.
+	 */
+	private static final int[] X_SHIFT = new int[] { 8, 16, 0, 8, 16, 0 };
+
+	/** The part of <code>Color.HSBtoRGB()</code> after the hue is split into
+	 * a sector and a fraction.  This must not be called when the saturation is zero.
+	 */
+	private static int toRGB(int sector,float f,float saturation,float brightness) {
+		float p = brightness * (1.0f - saturation);
+		float q = brightness * (1.0f - saturation * f);
+		float t = brightness * (1.0f - (saturation * (1.0f - f)));
+		int v = (int)(brightness * 255.0f + 0.5f);
+		int r = 0, g = 0, b = 0;
+		switch(sector) {
+		case 0:
+			r = v;
+			g = (int)(t * 255.0f + 0.5f);
+			b = (int)(p * 255.0f + 0.5f);
+			break;
+		case 1:
+			r = (int)(q * 255.0f + 0.5f);
+			g = v;
+			b = (int)(p * 255.0f + 0.5f);
+			break;
+		case 2:
+			r = (int)(p * 255.0f + 0.5f);
+			g = v;
+			b = (int)(t * 255.0f + 0.5f);
+			break;
+		case 3:
+			r = (int)(p * 255.0f + 0.5f);
+			g = (int)(q * 255.0f + 0.5f);
+			b = v;
+			break;
+		case 4:
+			r = (int)(t * 255.0f + 0.5f);
+			g = (int)(p * 255.0f + 0.5f);
+			b = v;
+			break;
+		case 5:
+			r = v;
+			g = (int)(p * 255.0f + 0.5f);
+			b = (int)(q * 255.0f + 0.5f);
+			break;
+		}
+		return 0xff000000 | (r << 16) | (g << 8) | b;
+	}
+
+	/** Converts RGB to HSB exactly like <code>Color.RGBtoHSB()</code>.
+	 *
+	 * @param r the red value, from [0,255].
+	 * @param g the green value, from [0,255].
+	 * @param b the blue value, from [0,255].
+	 * @param hsb an array of at least 3 elements to store the result in, or <code>null</code>.
+	 * @return the hue, saturation and brightness.  Each is between [0,1].
+	 */
+	public static float[] RGBtoHSB(int r,int g,int b,float[] hsb) {
+		if(((r | g | b) & ~0xff)!=0)
+			return Color.RGBtoHSB(r, g, b, hsb);
+		if(hsb==null)
+			hsb = new float[3];
+		int rgb = ((r & 0xff) << 16) | ((g & 0xff) << 8) | (b & 0xff);
+		int slot = (rgb ^ (rgb >>> 12)) & (MEMO_SIZE-1);
+		Entry e = memo[slot];
+		if(e==null || e.rgb!=rgb) {
+			Color.RGBtoHSB(r, g, b, hsb);
+			memo[slot] = new Entry(rgb, hsb[0], hsb[1], hsb[2]);
+		} else {
+			hsb[0] = e.hue;
+			hsb[1] = e.sat;
+			hsb[2] = e.bri;
+		}
+		return hsb;
+	}
+}
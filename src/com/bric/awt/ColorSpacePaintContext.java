@@ -0,0 +1,90 @@
+/*
+* @(#)ColorSpacePaintContext.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+/** The <code>PaintContext</code> shared by the color picker paints.
+ * <P>Java2D asks for one tile at a time, and only for tiles that survive
+ * clipping.  This maps the top left corner of each device pixel in the tile
+ * back into user space and asks the subclass for its color there, so
+ * nothing is computed (or stored) for pixels that are never painted.
+ * <P>The corner is used because that is where the <code>ColorPickerPanel</code>
+ * samples its graphic: so through an identity transform these paints
+ * produce exactly the same pixels it does.
+ * <P>The raster is kept and reused for the next tile when it is big enough.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+abstract class ColorSpacePaintContext implements PaintContext {
+
+	/** Maps device space to user space. */
+	private final AffineTransform inverse;
+
+	private WritableRaster raster;
+
+	ColorSpacePaintContext(AffineTransform xform) {
+		AffineTransform t;
+		try {
+			t = xform.createInverse();
+		} catch(NoninvertibleTransformException e) {
+			//nothing can be painted through this transform anyway
+			t = new AffineTransform();
+		}
+		inverse = t;
+	}
+
+	/** @return the opaque ARGB color at a point in user space. */
+	abstract int getRGB(double x,double y);
+
+	public ColorModel getColorModel() {
+		return ColorModel.getRGBdefault();
+	}
+
+	public Raster getRaster(int x,int y,int w,int h) {
+		if(raster==null || raster.getWidth()<w || raster.getHeight()<h) {
+			raster = getColorModel().createCompatibleWritableRaster(w, h);
+		}
+		int[] data = ((DataBufferInt)raster.getDataBuffer()).getData();
+		int scan = raster.getWidth();
+
+		//walk across each row by adding the image of one device pixel:
+		double dx = inverse.getScaleX();
+		double dy = inverse.getShearY();
+		Point2D.Double p = new Point2D.Double();
+		for(int row = 0; row<h; row++) {
+			p.setLocation(x, y+row);
+			inverse.transform(p, p);
+			double ux = p.x, uy = p.y;
+			int i = row*scan;
+			for(int col = 0; col<w; col++, i++) {
+				data[i] = getRGB(ux, uy);
+				ux += dx;
+				uy += dy;
+			}
+		}
+		return raster;
+	}
+
+	public void dispose() {
+		raster = null;
+	}
+
+	/** @return <code>v</code>, limited to [0,1]. */
+	static float clamp(double v) {
+		if(v<0) return 0;
+		if(v>1) return 1;
+		return (float)v;
+	}
+}
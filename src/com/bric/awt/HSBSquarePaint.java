@@ -0,0 +1,60 @@
+/*
+* @(#)HSBSquarePaint.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+/** A <code>Paint</code> that fills with the square the
+ * <code>ColorPickerPanel</code> uses in HUE mode.
+ * <P>The hue is constant.  The saturation increases from 0 at the left edge
+ * of the bounds to 1 at the last column of pixels, one unit in from the right
+ * edge.  The brightness increases the same way from the top edge to the last
+ * row.  This is how the <code>ColorPickerPanel</code> spreads the square over its
+ * pixels.  Outside this range the color of the nearest edge is used.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class HSBSquarePaint implements Paint {
+
+	private final double x, y, width, height;
+	private final float hue;
+
+	/** Creates a new <code>HSBSquarePaint</code>.
+	 *
+	 * @param bounds the rectangle the gradient spans, in user space.
+	 * @param hue the hue of every color.  This may be any value:
+	 * only its fractional part matters.
+	 */
+	public HSBSquarePaint(Rectangle2D bounds,float hue) {
+		x = bounds.getX();
+		y = bounds.getY();
+		width = bounds.getWidth();
+		height = bounds.getHeight();
+		this.hue = hue;
+	}
+
+	public PaintContext createContext(ColorModel cm,Rectangle deviceBounds,Rectangle2D userBounds,AffineTransform xform,RenderingHints hints) {
+		return new ColorSpacePaintContext(xform) {
+			int getRGB(double px,double py) {
+				float s = width>1 ? clamp((px-x)/(width-1)) : 0;
+				float b = height>1 ? clamp((py-y)/(height-1)) : 0;
+				return ColorConversion.HSBtoRGB(hue, s, b);
+			}
+		};
+	}
+
+	public int getTransparency() {
+		return Transparency.OPAQUE;
+	}
+}
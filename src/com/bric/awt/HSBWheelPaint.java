@@ -0,0 +1,92 @@
+/*
+* @(#)HSBWheelPaint.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+/** A <code>Paint</code> that fills with the color wheel the
+ * <code>ColorPickerPanel</code> uses in SAT and BRI mode.
+ * <P>The hue goes around the wheel, starting with red at the top.
+ * Either the saturation or the brightness is held constant, and the
+ * other increases from the center of the wheel to its edge.
+ * <P>Outside the wheel the color of the nearest point on its edge
+ * is used, so this is usually used to fill an ellipse with the same bounds.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class HSBWheelPaint implements Paint {
+
+	/** The saturation is constant, and the brightness increases outward. */
+	public static final int SATURATION = 1;
+
+	/** The brightness is constant, and the saturation increases outward. */
+	public static final int BRIGHTNESS = 2;
+
+	private final double centerX, centerY, radius;
+	private final int constant;
+	private final float value;
+
+	/** Creates a new <code>HSBWheelPaint</code>.
+	 *
+	 * @param bounds the square the wheel is inscribed in, in user space.
+	 * @param constant either <code>SATURATION</code> or <code>BRIGHTNESS</code>.
+	 * @param value the value of the constant property, from [0,1].
+	 */
+	public HSBWheelPaint(Rectangle2D bounds,int constant,float value) {
+		if(!(constant==SATURATION || constant==BRIGHTNESS))
+			throw new IllegalArgumentException("The constant must be SATURATION or BRIGHTNESS.");
+		if(value<0 || value>1)
+			throw new IllegalArgumentException("The value ("+value+") must be between [0,1].");
+		centerX = bounds.getCenterX();
+		centerY = bounds.getCenterY();
+		radius = Math.min(bounds.getWidth(), bounds.getHeight())/2;
+		this.constant = constant;
+		this.value = value;
+	}
+
+	public PaintContext createContext(ColorModel cm,Rectangle deviceBounds,Rectangle2D userBounds,AffineTransform xform,RenderingHints hints) {
+		if(constant==SATURATION) {
+			return new ColorSpacePaintContext(xform) {
+				int getRGB(double x,double y) {
+					return ColorConversion.HSBtoRGB(getHue(x, y), value, getRadius(x, y));
+				}
+			};
+		}
+		return new ColorSpacePaintContext(xform) {
+			int getRGB(double x,double y) {
+				return ColorConversion.HSBtoRGB(getHue(x, y), getRadius(x, y), value);
+			}
+		};
+	}
+
+	/** @return the hue at a point, exactly as the <code>ColorPickerPanel</code> calculates it. */
+	private float getHue(double x,double y) {
+		double theta = Math.atan2(y-centerY, x-centerX)-3*Math.PI/2.0;
+		if(theta<0) theta+=2*Math.PI;
+		return (float)(theta/(2*Math.PI));
+	}
+
+	/** @return the distance of a point from the center, from [0,1]. */
+	private float getRadius(double x,double y) {
+		if(radius<=0)
+			return 0;
+		x -= centerX;
+		y -= centerY;
+		return ColorSpacePaintContext.clamp(Math.sqrt(x*x+y*y)/radius);
+	}
+
+	public int getTransparency() {
+		return Transparency.OPAQUE;
+	}
+}
@@ -14,10 +14,17 @@
 package com.bric.awt;
 
 import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+import java.util.*;
 
 import javax.swing.*;
 
 /** Some static methods for some common painting functions.
+ * <P>The focus ring and the bevel are drawn on nearly every paint,
+ * and they usually look exactly the same as last time.  So when they
+ * outline a rectangle or an ellipse they are rasterized once into a
+ * small cached image (a "sprite"), and just copied after that.
  *
  * @version 1.3
  * @author Jeremy Wood
@@ -63,6 +70,15 @@ public class PaintUtils {
 	 */
 	public static void paintFocus(Graphics2D g,Shape shape,int biggestStroke) {
 		Color focusColor = getFocusRingColor();
+		if(drawSprite(g, shape, FOCUS, biggestStroke, focusColor)) {
+			g.setStroke(ONE_PIXEL);
+			g.setColor(focusColor);
+			return;
+		}
+		paintFocus(g, shape, biggestStroke, focusColor);
+	}
+
+	private static void paintFocus(Graphics2D g,Shape shape,int biggestStroke,Color focusColor) {
 		Color[] focusArray = new Color[] {
 			new Color(focusColor.getRed(), focusColor.getGreen(), focusColor.getBlue(),255),
 			new Color(focusColor.getRed(), focusColor.getGreen(), focusColor.getBlue(),170),
@@ -89,15 +105,180 @@ public class PaintUtils {
 	 * @param r the rectangle to paint.
 	 */
 	public static void drawBevel(Graphics g,Rectangle r) {
+		if(g instanceof Graphics2D && drawSprite((Graphics2D)g, r, BEVEL, 0, BEVEL_GRAY)) {
+			g.setColor(BEVEL_GRAY);
+			return;
+		}
+		paintBevel(g, r);
+	}
+
+	private static void paintBevel(Graphics g,Rectangle r) {
 		drawColors(blacks,g, r.x, r.y+r.height, r.x+r.width, r.y+r.height, SwingConstants.SOUTH);
 		drawColors(blacks,g, r.x+r.width, r.y, r.x+r.width, r.y+r.height, SwingConstants.EAST);
 
 		drawColors(whites,g, r.x, r.y, r.x+r.width, r.y, SwingConstants.NORTH);
 		drawColors(whites,g, r.x, r.y, r.x, r.y+r.height, SwingConstants.WEST);
 		
-		g.setColor(new Color(120, 120, 120));
+		g.setColor(BEVEL_GRAY);
 		g.drawRect(r.x, r.y, r.width, r.height);
 	}
+
+	private static final Color BEVEL_GRAY = new Color(120, 120, 120);
+	private static final BasicStroke ONE_PIXEL = new BasicStroke(1);
+
+	/** The kinds of sprites. */
+	private static final int FOCUS = 0, BEVEL = 1;
+
+	/** The most pixels one sprite may have.  Larger decorations are painted directly. */
+	private static final int MAX_SPRITE_PIXELS = 512*512;
+
+	/** The most pixels all the sprites may have. */
+	private static final int MAX_CACHED_PIXELS = 4*MAX_SPRITE_PIXELS;
+
+	private static int cachedPixels = 0;
+
+	/** The sprites, with the least recently used first. */
+	private static final LinkedHashMap<SpriteKey, BufferedImage> sprites = 
+		new LinkedHashMap<SpriteKey, BufferedImage>(16, .75f, true);
+
+	/** Everything that determines how a sprite looks. */
+	private static final class SpriteKey {
+		final int kind, param, rgb;
+		final boolean ellipse;
+		final double width, height, scale;
+		final Object antialiasing, strokeControl;
+
+		SpriteKey(int kind,int param,int rgb,boolean ellipse,double width,double height,double scale,Object antialiasing,Object strokeControl) {
+			this.kind = kind;
+			this.param = param;
+			this.rgb = rgb;
+			this.ellipse = ellipse;
+			this.width = width;
+			this.height = height;
+			this.scale = scale;
+			this.antialiasing = antialiasing;
+			this.strokeControl = strokeControl;
+		}
+
+		public int hashCode() {
+			return (((kind*31+param)*31+rgb)*31+(int)(width*7+height*13))*31+(int)(scale*100);
+		}
+
+		public boolean equals(Object obj) {
+			if(!(obj instanceof SpriteKey))
+				return false;
+			SpriteKey k = (SpriteKey)obj;
+			return k.kind==kind && k.param==param && k.rgb==rgb && k.ellipse==ellipse &&
+				k.width==width && k.height==height && k.scale==scale &&
+				equal(k.antialiasing, antialiasing) && equal(k.strokeControl, strokeControl);
+		}
+
+		private static boolean equal(Object a,Object b) {
+			return a==null ? b==null : a.equals(b);
+		}
+	}
+
+	/** Draws a focus ring or a bevel from the sprite cache.
+	 * <P>This only works when the result would look exactly like painting the
+	 * decoration directly: the shape must be a rectangle or an ellipse, the
+	 * transform must only translate and scale uniformly, the sprite must
+	 * line up with the device pixels, and the composite must be plain
+	 * <code>SrcOver</code>.
+	 * 
+	 * @return <code>false</code> if the sprite cache can't be used here, so
+	 * the caller must paint the decoration directly.
+	 */
+	private static boolean drawSprite(Graphics2D g,Shape shape,int kind,int param,Color color) {
+		boolean ellipse = shape instanceof Ellipse2D;
+		if(!(ellipse || shape instanceof Rectangle2D))
+			return false;
+		if(g.getComposite()!=AlphaComposite.SrcOver)
+			return false;
+		AffineTransform t = g.getTransform();
+		if((t.getType() & ~(AffineTransform.TYPE_TRANSLATION | AffineTransform.TYPE_UNIFORM_SCALE))!=0)
+			return false;
+		double scale = t.getScaleX();
+		if(scale<=0)
+			return false;
+
+		Rectangle2D bounds = shape.getBounds2D();
+		//a margin wide enough for the widest stroke and its antialiasing:
+		int margin = kind==FOCUS ? param/2+2 : 2;
+		double x = t.getTranslateX()+scale*(bounds.getX()-margin);
+		double y = t.getTranslateY()+scale*(bounds.getY()-margin);
+		if(x!=Math.floor(x) || y!=Math.floor(y))
+			return false;
+		int w = (int)Math.ceil(scale*(bounds.getWidth()+2*margin))+1;
+		int h = (int)Math.ceil(scale*(bounds.getHeight()+2*margin))+1;
+		if(((long)w)*h>MAX_SPRITE_PIXELS)
+			return false;
+
+		SpriteKey key = new SpriteKey(kind, param, color.getRGB(), ellipse, 
+				bounds.getWidth(), bounds.getHeight(), scale,
+				g.getRenderingHint(RenderingHints.KEY_ANTIALIASING),
+				g.getRenderingHint(RenderingHints.KEY_STROKE_CONTROL));
+		BufferedImage sprite;
+		synchronized(sprites) {
+			sprite = sprites.get(key);
+		}
+		if(sprite==null) {
+			sprite = new BufferedImage(w, h, BufferedImage.TYPE_INT_ARGB_PRE);
+			Graphics2D g2 = sprite.createGraphics();
+			if(key.antialiasing!=null)
+				g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, key.antialiasing);
+			if(key.strokeControl!=null)
+				g2.setRenderingHint(RenderingHints.KEY_STROKE_CONTROL, key.strokeControl);
+			g2.scale(scale, scale);
+			//put the shape's bounds at (margin, margin):
+			g2.translate(margin-bounds.getX(), margin-bounds.getY());
+			if(kind==FOCUS) {
+				paintFocus(g2, shape, param, color);
+			} else {
+				paintBevel(g2, (Rectangle)shape);
+			}
+			g2.dispose();
+			synchronized(sprites) {
+				if(sprites.put(key, sprite)==null)
+					cachedPixels += w*h;
+				Iterator<BufferedImage> i = sprites.values().iterator();
+				while(cachedPixels>MAX_CACHED_PIXELS && i.hasNext()) {
+					BufferedImage old = i.next();
+					cachedPixels -= old.getWidth()*old.getHeight();
+					i.remove();
+				}
+			}
+		}
+		g.setTransform(AffineTransform.getTranslateInstance(x, y));
+		g.drawImage(sprite, 0, 0, null);
+		g.setTransform(t);
+		return true;
+	}
+	
+	/** Creates an image that can be drawn to a component quickly.
+	 * <P>The image matches the format of the component's screen, so Java2D
+	 * can cache it on the graphics card and copy it with an accelerated
+	 * pipeline.  If the component isn't on a screen yet this returns a
+	 * plain <code>BufferedImage</code>.
+	 * <P>The image is only compatible with the screen the component was on
+	 * when it was created.  The caller should check
+	 * <code>getGraphicsConfiguration()</code> and create a new image when
+	 * that changes.
+	 * 
+	 * @param c the component the image will be drawn to.
+	 * @param w the width of the image.
+	 * @param h the height of the image.
+	 * @param transparency <code>Transparency.OPAQUE</code>,
+	 * <code>Transparency.BITMASK</code> or <code>Transparency.TRANSLUCENT</code>.
+	 * Opaque images can be drawn fastest.
+	 */
+	public static BufferedImage createCompatibleImage(Component c,int w,int h,int transparency) {
+		GraphicsConfiguration gc = c.getGraphicsConfiguration();
+		if(gc==null) {
+			int type = transparency==Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB : BufferedImage.TYPE_INT_ARGB;
+			return new BufferedImage(w, h, type);
+		}
+		return gc.createCompatibleImage(w, h, transparency);
+	}
 	
 	private static void drawColors(Color[] colors,Graphics g,int x1,int y1,int x2,int y2,int direction) {
 		for(int a = 0; a<colors.length; a++) {
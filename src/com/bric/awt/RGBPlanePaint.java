@@ -0,0 +1,97 @@
+/*
+* @(#)RGBPlanePaint.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import java.awt.*;
+import java.awt.geom.*;
+import java.awt.image.*;
+
+/** A <code>Paint</code> that fills with one of the squares the
+ * <code>ColorPickerPanel</code> uses in RED, GREEN, or BLUE mode.
+ * <P>One channel is constant.  Of the other two, the first (in the order
+ * red, green, blue) increases from the left edge of the bounds to the right
+ * edge, and the second increases from the top edge to the bottom edge.
+ * Outside the bounds the color of the nearest edge is used.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class RGBPlanePaint implements Paint {
+
+	/** The red channel is constant: green increases to the right, and blue increases downward. */
+	public static final int RED = 1;
+
+	/** The green channel is constant: red increases to the right, and blue increases downward. */
+	public static final int GREEN = 2;
+
+	/** The blue channel is constant: red increases to the right, and green increases downward. */
+	public static final int BLUE = 3;
+
+	private final double x, y, width, height;
+	/** The constant channel, shifted into place. */
+	private final int fixed;
+	/** Where the horizontal and vertical channels go in an ARGB int. */
+	private final int columnShift, rowShift;
+
+	/** Creates a new <code>RGBPlanePaint</code>.
+	 *
+	 * @param bounds the rectangle the gradient spans, in user space.
+	 * @param constant one of <code>RED</code>, <code>GREEN</code>, or <code>BLUE</code>.
+	 * @param value the value of the constant channel, from [0,255].
+	 */
+	public RGBPlanePaint(Rectangle2D bounds,int constant,int value) {
+		if(value<0 || value>255)
+			throw new IllegalArgumentException("The value ("+value+") must be between [0,255].");
+		if(constant==RED) {
+			fixed = value << 16;
+			columnShift = 8;
+			rowShift = 0;
+		} else if(constant==GREEN) {
+			fixed = value << 8;
+			columnShift = 16;
+			rowShift = 0;
+		} else if(constant==BLUE) {
+			fixed = value;
+			columnShift = 16;
+			rowShift = 8;
+		} else {
+			throw new IllegalArgumentException("The constant must be RED, GREEN, or BLUE.");
+		}
+		x = bounds.getX();
+		y = bounds.getY();
+		width = bounds.getWidth();
+		height = bounds.getHeight();
+	}
+
+	public PaintContext createContext(ColorModel cm,Rectangle deviceBounds,Rectangle2D userBounds,AffineTransform xform,RenderingHints hints) {
+		return new ColorSpacePaintContext(xform) {
+			int getRGB(double px,double py) {
+				int c = width>0 ? toChannel((px-x)/width) : 0;
+				int r = height>0 ? toChannel((py-y)/height) : 0;
+				return 0xff000000 | fixed | (c << columnShift) | (r << rowShift);
+			}
+		};
+	}
+
+	/** @return a fraction of the bounds converted to a channel value,
+	 * the same way the <code>ColorPickerPanel</code> assigns values to its pixels.
+	 */
+	private static int toChannel(double f) {
+		int v = (int)(f*256);
+		if(v<0) return 0;
+		if(v>255) return 255;
+		return v;
+	}
+
+	public int getTransparency() {
+		return Transparency.OPAQUE;
+	}
+}
@@ -0,0 +1,55 @@
+/*
+* @(#)RowConverter.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+/** The inner loops of the bulk <code>ColorConversion.HSBtoRGB()</code> methods,
+ * after the hue has been split into a sector.
+ * <P>The only implementation is <code>VectorRowConverter</code>, which is
+ * built from its own source folder and loaded by name, so this library still
+ * compiles and runs without the <code>jdk.incubator.vector</code> module.
+ * Every implementation must give exactly the same results as the scalar loops
+ * in <code>ColorConversion</code>.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+interface RowConverter {
+
+	/** Converts a row of colors that share a hue and a brightness.
+	 *
+	 * @param base the alpha and the channel equal to the brightness, already shifted into place.
+	 * @param brightness the brightness of every color.
+	 * @param k the factor the saturation is multiplied by to calculate q or t.
+	 * @param pShift where the channel equal to p goes.
+	 * @param xShift where the channel equal to q or t goes.
+	 * @param saturation the saturation of each color, starting at index 0.
+	 * @param dst the array to store opaque ARGB colors in.
+	 * @param offset the index in <code>dst</code> of the first color.
+	 * @param length the number of colors to convert.
+	 */
+	void convertSaturations(int base,float brightness,float k,int pShift,int xShift,
+			float[] saturation,int[] dst,int offset,int length);
+
+	/** Converts a row of colors that share a hue and a saturation.
+	 *
+	 * @param pFactor the factor the brightness is multiplied by to calculate p.
+	 * @param xFactor the factor the brightness is multiplied by to calculate q or t.
+	 * @param vShift where the channel equal to the brightness goes.
+	 * @param pShift where the channel equal to p goes.
+	 * @param xShift where the channel equal to q or t goes.
+	 * @param brightness the brightness of each color, starting at index 0.
+	 * @param dst the array to store opaque ARGB colors in.
+	 * @param offset the index in <code>dst</code> of the first color.
+	 * @param length the number of colors to convert.
+	 */
+	void convertBrightnesses(float pFactor,float xFactor,int vShift,int pShift,int xShift,
+			float[] brightness,int[] dst,int offset,int length);
+}
@@ -23,6 +23,7 @@ import java.util.*;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.swing.event.*;
+import com.bric.awt.*;
 
 /** This is a panel that offers a robust set of controls to pick a color.
  * <P>This was originally intended to replace the <code>JColorChooser</code>.
@@ -44,6 +45,10 @@ import javax.swing.event.*;
  * when the RGB value of the selected color changes.
  * <P>To listen to opacity changes to this panel, use a <code>PropertyChangeListener</code> listening
  * for changes to the <code>OPACITY_PROPERTY</code>.
+ * <P>While the user drags the color panel or one of the sliders, these events are fired for
+ * every color along the way, and <code>getValueIsAdjusting()</code> returns <code>true</code>.
+ * If you only need the color the user settles on, listen for the <code>COMMITTED_COLOR_PROPERTY</code>
+ * instead: it is fired once when the gesture ends, and right away for changes that aren't part of one.
  * 
  * @version 1.4
  * @author Jeremy Wood
@@ -299,6 +304,20 @@ public class ColorPicker extends JPanel {
 	 * (That is, when the wheel switches from HUE, SAT, BRI, RED, GREEN, or BLUE modes.)
 	 */
 	public static final String MODE_PROPERTY = "mode";
+
+	/** <code>PropertyChangeEvents</code> will be triggered for this property when
+	 * <code>getValueIsAdjusting()</code> changes.
+	 */
+	public static final String VALUE_IS_ADJUSTING_PROPERTY = "value is adjusting";
+
+	/** <code>PropertyChangeEvents</code> will be triggered for this property when the selected
+	 * color changes and is not adjusting.  For a drag this is only fired when the drag ends,
+	 * with the color before the drag and the final color.
+	 * <P>Unlike the <code>SELECTED_COLOR_PROPERTY</code> this includes the opacity, so it
+	 * is also fired when just the opacity changes.
+	 * @see #getValueIsAdjusting()
+	 */
+	public static final String COMMITTED_COLOR_PROPERTY = "committed color";
 	
 	/** Used to indicate when we're in "hue mode". */
 	protected static final int HUE = 0;
@@ -319,25 +338,18 @@ public class ColorPicker extends JPanel {
 	ChangeListener changeListener = new ChangeListener() {
 		public void stateChanged(ChangeEvent e) {
 			Object src = e.getSource();
+			if(adjustingViews>0)
+				return;
 
 			if(hue.contains(src) || sat.contains(src) || bri.contains(src)) {
-				if(adjustingSpinners>0)
-					return;
-				
 				setHSB( hue.getFloatValue()/360f,
 						sat.getFloatValue()/100f,
 						bri.getFloatValue()/100f );
 			} else if(red.contains(src) || green.contains(src) || blue.contains(src)) {
-				if(adjustingSpinners>0)
-					return;
-				
 				setRGB( scaleRed(red.getIntValue()),
 						scaleGreen(green.getIntValue()),
 						scaleBlue(blue.getIntValue()) );
 			} else if(src==colorPanel) {
-				if(adjustingColorPanel>0)
-					return;
-				
 				int mode = getMode();
 				if(mode==HUE || mode==BRI || mode==SAT) {
 					float[] hsb = colorPanel.getHSB();
@@ -347,25 +359,99 @@ public class ColorPicker extends JPanel {
 					setRGB(rgb[0],rgb[1],rgb[2]);
 				}
 			} else if(src==slider) {
-				if(adjustingSlider>0)
-					return;
-				
+				colorPanel.setValueIsAdjusting(slider.getValueIsAdjusting());
 				int v = slider.getValue();
-				Option option = getSelectedOption();
-				option.setValue(v);
+				int mode = getMode();
+				//the other two values are taken from the selection, not rounded from their spinners:
+				if(mode==HUE) {
+					selection.setHSB(((float)v)/360f, selection.getSaturation(), selection.getBrightness());
+				} else if(mode==SAT) {
+					selection.setHSB(selection.getHue(), ((float)v)/100f, selection.getBrightness());
+				} else if(mode==BRI) {
+					selection.setHSB(selection.getHue(), selection.getSaturation(), ((float)v)/100f);
+				} else if(mode==RED) {
+					selection.setRGB(scaleRed(v), selection.getGreen(), selection.getBlue());
+				} else if(mode==GREEN) {
+					selection.setRGB(selection.getRed(), scaleGreen(v), selection.getBlue());
+				} else {
+					selection.setRGB(selection.getRed(), selection.getGreen(), scaleBlue(v));
+				}
+				if(slider.getValueIsAdjusting() && lastSliderValue>=0 && v!=lastSliderValue)
+					preRender(v, v-lastSliderValue);
+				lastSliderValue = v;
 			} else if(alpha.contains(src)) {
-				if(adjustingOpacity>0)
-					return;
 				int v = alpha.getIntValue();
 				setOpacity( ((float)v)/255f );
 			} else if(src==opacitySlider) {
-				if(adjustingOpacity>0) return;
-				
+				//the flag comes first, so the last value of a drag is committed when it ends:
+				updateValueIsAdjusting();
 				float newValue = ( ((float)opacitySlider.getValue())/255f );
 				setOpacity(newValue);
 			}
 		}
 	};
+
+	/** Brings every control up to date when the selection changes, and
+	 * fires the property changes for it.
+	 */
+	ChangeListener selectionListener = new ChangeListener() {
+		public void stateChanged(ChangeEvent e) {
+			updateViews(selection.getChanges());
+
+			Color newColor = getColor();
+			int changes = selection.getChanges();
+			if((changes & ColorSelectionModel.RGB_CHANGED)!=0)
+				firePropertyChange(SELECTED_COLOR_PROPERTY,lastColor,newColor);
+			if((changes & ColorSelectionModel.ALPHA_CHANGED)!=0)
+				firePropertyChange(OPACITY_PROPERTY,Float.valueOf(((float)lastColor.getAlpha())/255f),Float.valueOf(((float)newColor.getAlpha())/255f));
+			lastColor = newColor;
+			if(!valueIsAdjusting)
+				commitColor();
+		}
+	};
+
+	/** Whether the selected color is changing as part of a gesture. */
+	private boolean valueIsAdjusting = false;
+
+	/** The color when the selection was last committed. */
+	private Color committedColor;
+
+	/** Returns whether the selected color is changing as part of a gesture:
+	 * while the user drags the color panel, the slider next to it, or the opacity slider.
+	 * <P>This is like <code>JSlider.getValueIsAdjusting()</code>.  When the gesture ends
+	 * this becomes <code>false</code> and the final color is committed.
+	 * 
+	 * @return whether the selected color is changing as part of a gesture.
+	 * @see #COMMITTED_COLOR_PROPERTY
+	 */
+	public boolean getValueIsAdjusting() {
+		return valueIsAdjusting;
+	}
+
+	/** Reads whether any control is in the middle of a gesture.  When the last gesture ends,
+	 * this commits the color.
+	 */
+	private void updateValueIsAdjusting() {
+		boolean b = colorPanel.getValueIsAdjusting() || opacitySlider.getValueIsAdjusting();
+		if(b==valueIsAdjusting)
+			return;
+		valueIsAdjusting = b;
+		if(!b)
+			flushDeferredViews();
+		firePropertyChange(VALUE_IS_ADJUSTING_PROPERTY, !b, b);
+		if(!b)
+			commitColor();
+	}
+
+	/** Fires the <code>COMMITTED_COLOR_PROPERTY</code> if the color changed since it was last committed. */
+	private void commitColor() {
+		Color newColor = getColor();
+		if(newColor.equals(committedColor))
+			return;
+		Color oldColor = committedColor;
+		committedColor = newColor;
+		firePropertyChange(COMMITTED_COLOR_PROPERTY, oldColor, newColor);
+	}
 	
 	ActionListener actionListener = new ActionListener() {
 		public void actionPerformed(ActionEvent e) {
@@ -463,7 +549,7 @@ public class ColorPicker extends JPanel {
 		public void changedUpdate(DocumentEvent e) {
 			lastTimeStamp = System.currentTimeMillis();
 			
-			if(adjustingHexField>0)
+			if(adjustingViews>0)
 				return;
 			
 			String s = hexField.getText();
@@ -514,9 +600,11 @@ public class ColorPicker extends JPanel {
 	};
 
 	private String depth;
-	int[] bpp = new int[] { 8, 8, 8 };
-	int[] max = new int[] { 255, 255, 255 };;
+	final int[] bpp = new int[] { 8, 8, 8 };
+	final int[] max = new int[] { 255, 255, 255 };;
 	private int[] multiplier = new int[] { 0x100, 0x100, 0x100 };
+	/** The lookup tables that quantize colors to this picker's depth. */
+	Quantizer quantizer;
 	private Option alpha = new Option(strings.getObject("alphaLabel").toString(), 255, 5);
 	private Option hue = new Option(strings.getObject("hueLabel").toString(), 360, 5);
 	private Option sat = new Option(strings.getObject("saturationLabel").toString(), 100, 5);
@@ -528,41 +616,66 @@ public class ColorPicker extends JPanel {
 	private JLabel hexLabel = new JLabel(strings.getObject("hexLabel").toString());
 	private JTextField hexField = new JTextField("000000");
 	
-	/** Used to indicate when we're internally adjusting the value of the spinners.
-	 * If this equals zero, then incoming events are triggered by the user and must be processed.
-	 * If this is not equal to zero, then incoming events are triggered by another method
-	 * that's already responding to the user's actions.
-	 */
-	private int adjustingSpinners = 0;
+	/** The selected color.  Every control is a view of this model. */
+	private final ColorSelectionModel selection;
 
-	/** Used to indicate when we're internally adjusting the value of the slider.
-	 * If this equals zero, then incoming events are triggered by the user and must be processed.
-	 * If this is not equal to zero, then incoming events are triggered by another method
-	 * that's already responding to the user's actions.
-	 */
-	private int adjustingSlider = 0;
+	/** The color when the selection last changed. */
+	private Color lastColor;
 
-	/** Used to indicate when we're internally adjusting the selected color of the ColorPanel.
+	/** Used to indicate when we're internally adjusting the controls to match the selection.
 	 * If this equals zero, then incoming events are triggered by the user and must be processed.
-	 * If this is not equal to zero, then incoming events are triggered by another method
-	 * that's already responding to the user's actions.
+	 * If this is not equal to zero, then incoming events are triggered by <code>updateViews()</code>
+	 * and are ignored.
 	 */
-	private int adjustingColorPanel = 0;
+	private int adjustingViews = 0;
 
-	/** Used to indicate when we're internally adjusting the value of the hex field.
-	 * If this equals zero, then incoming events are triggered by the user and must be processed.
-	 * If this is not equal to zero, then incoming events are triggered by another method
-	 * that's already responding to the user's actions.
-	 */
-	private int adjustingHexField = 0;
+	/** The last value the user set the slider to, or -1. */
+	private int lastSliderValue = -1;
 
-	/** Used to indicate when we're internally adjusting the value of the opacity.
-	 * If this equals zero, then incoming events are triggered by the user and must be processed.
-	 * If this is not equal to zero, then incoming events are triggered by another method
-	 * that's already responding to the user's actions.
+	/** How many slider values ahead of the thumb are pre-rendered while it is dragged. */
+	private static final int PRE_RENDER_COUNT = 3;
+
+	/** Asks the color panel to pre-render the slider values the thumb will probably
+	 * reach next.
+	 * <P>A drag usually skips several values per mouse event (the hue has 360 values, and
+	 * the track is only a few hundred pixels long), so this extrapolates the step the
+	 * thumb just took: the guesses are <code>v+stride</code>, <code>v+2*stride</code>
+	 * and so on, limited to the slider's range.
+	 * 
+	 * @param v the slider's value.
+	 * @param stride how far the value moved in the last step.  This is negative
+	 * if the value is decreasing.
 	 */
-	private int adjustingOpacity = 0;
-	
+	private void preRender(int v,int stride) {
+		int mode = getMode();
+		int count = 0;
+		float[] values = new float[PRE_RENDER_COUNT];
+		int last = v;
+		for(int a = 1; a<=PRE_RENDER_COUNT; a++) {
+			long guess = v+((long)stride)*a;
+			int w = (int)Math.max(slider.getMinimum(), Math.min(slider.getMaximum(), guess));
+			//once the guesses reach the end of the track they stop changing:
+			if(w==last)
+				break;
+			last = w;
+			//these match the values the slider gives the selection:
+			if(mode==HUE) {
+				values[count++] = ((float)w)/360f;
+			} else if(mode==SAT || mode==BRI) {
+				values[count++] = ((float)w)/100f;
+			} else if(mode==RED) {
+				values[count++] = quantizeRed(scaleRed(w));
+			} else if(mode==GREEN) {
+				values[count++] = quantizeGreen(scaleGreen(w));
+			} else {
+				values[count++] = quantizeBlue(scaleBlue(w));
+			}
+		}
+		float[] trimmed = new float[count];
+		System.arraycopy(values, 0, trimmed, 0, count);
+		colorPanel.preRender(trimmed);
+	}
+
 	/** The "expert" controls are the controls on the right side
 	 * of this panel: the labels/spinners/radio buttons.
 	 */
@@ -633,12 +746,18 @@ public class ColorPicker extends JPanel {
 			max[i] = (1 << bpp[i]) - 1;
 			multiplier[i] = MULTIPLIERS[bpp[i]];
 		}
+		quantizer = Quantizer.get(bpp);
+		selection = new ColorSelectionModel(quantizer);
+		lastColor = getColor();
+		committedColor = lastColor;
+		selection.addChangeListener(selectionListener);
 		
 		red = new Option(strings.getObject("redLabel").toString(), max[0], STEPSIZE[bpp[0]]);
 		green = new Option(strings.getObject("greenLabel").toString(), max[1], STEPSIZE[bpp[1]]);
 		blue = new Option(strings.getObject("blueLabel").toString(), max[2], STEPSIZE[bpp[2]]);
 
 		colorPanel = new ColorPickerPanel(this);
+		textTimer.setRepeats(false);
 
 		GridBagConstraints c = new GridBagConstraints();
 		
@@ -731,6 +850,11 @@ public class ColorPicker extends JPanel {
 		
 		slider.addChangeListener(changeListener);
 		colorPanel.addChangeListener(changeListener);
+		colorPanel.addPropertyChangeListener(VALUE_IS_ADJUSTING_PROPERTY, new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent evt) {
+				updateValueIsAdjusting();
+			}
+		});
 		slider.setUI(new ColorPickerSliderUI(slider,this));
 		hexField.getDocument().addDocumentListener(hexDocListener);
 		setMode(BRI);
@@ -741,7 +865,7 @@ public class ColorPicker extends JPanel {
 		
 		opacitySlider.addChangeListener(changeListener);
 		
-		setOpacity(1);
+		updateViews(ColorSelectionModel.RGB_CHANGED | ColorSelectionModel.HSB_CHANGED | ColorSelectionModel.ALPHA_CHANGED);
 	}
 	
 	/** This controls whether the hex field (and label) are visible or not.
@@ -772,15 +896,30 @@ public class ColorPicker extends JPanel {
 		expertControls.setVisible(b);
 	}
 	
+	/** Returns the selected color as an immutable snapshot.
+	 * <P>This can be called from any thread, such as a thread that renders
+	 * with the selected color many times a second.  It doesn't lock, wait for the
+	 * event dispatch thread, or allocate anything: it just reads the snapshot
+	 * that was published when the selection last changed.
+	 * <P>The other getters are also safe to call from any thread, because they read
+	 * this snapshot too; but they create a new array or <code>Color</code> each time.
+	 * 
+	 * @return the color this <code>ColorPicker</code> has selected.
+	 */
+	public ColorSnapshot getSnapshot() {
+		return selection.getSnapshot();
+	}
+
 	/** @return the current HSB coordinates of this <code>ColorPicker</code>.
 	 * Each value is between [0,1].
 	 * 
 	 */
 	public float[] getHSB() {
+		ColorSnapshot s = selection.getSnapshot();
 		return new float[] {
-				hue.getFloatValue()/360f,
-				sat.getFloatValue()/100f,
-				bri.getFloatValue()/100f
+				s.getHue(),
+				s.getSaturation(),
+				s.getBrightness()
 		};
 	}
 
@@ -789,10 +928,11 @@ public class ColorPicker extends JPanel {
 	 * 
 	 */
 	public int[] getScaledRGB() {
+		ColorSnapshot s = selection.getSnapshot();
 		return new int[] {
-				scaleRed(red.getIntValue()),
-				scaleGreen(green.getIntValue()),
-				scaleBlue(blue.getIntValue())
+				s.getRed(),
+				s.getGreen(),
+				s.getBlue()
 		};
 	}
 
@@ -801,10 +941,11 @@ public class ColorPicker extends JPanel {
 	 * 
 	 */
 	public int[] getUnscaledRGB() {
+		ColorSnapshot s = selection.getSnapshot();
 		return new int[] {
-				red.getIntValue(),
-				green.getIntValue(),
-				blue.getIntValue()
+				s.getRed() >> (8-bpp[0]),
+				s.getGreen() >> (8-bpp[1]),
+				s.getBlue() >> (8-bpp[2])
 		};
 	}
 
@@ -813,10 +954,11 @@ public class ColorPicker extends JPanel {
 	 * 
 	 */
 	public int getUnscaledColor() {
+		ColorSnapshot s = selection.getSnapshot();
 		return 
-				(red.getIntValue() << (bpp[1]+bpp[2])) |
-				(green.getIntValue() << bpp[2]) |
-				blue.getIntValue();
+				((s.getRed() >> (8-bpp[0])) << (bpp[1]+bpp[2])) |
+				((s.getGreen() >> (8-bpp[1])) << bpp[2]) |
+				(s.getBlue() >> (8-bpp[2]));
 	}
 	
 	/** Returns the currently selected opacity (a float between 0 and 1). 
@@ -824,11 +966,9 @@ public class ColorPicker extends JPanel {
 	 * @return the currently selected opacity (a float between 0 and 1).
 	 */
 	public float getOpacity() {
-		return ((float)opacitySlider.getValue())/255f;
+		return ((float)selection.getSnapshot().getAlpha())/255f;
 	}
 	
-	private float lastOpacity = 1;
-	
 	/** Sets the currently selected opacity.
 	 * 
 	 * @param v a float between 0 and 1.
@@ -836,20 +976,7 @@ public class ColorPicker extends JPanel {
 	public void setOpacity(float v) {
 		if(v<0 || v>1) 
 			throw new IllegalArgumentException("The opacity ("+v+") must be between 0 and 1.");
-		adjustingOpacity++;
-		try {
-			int i = (int)(255*v);
-			opacitySlider.setValue( i );
-			alpha.spinner.setValue( Integer.valueOf(i) );
-			if(lastOpacity!=v) {
-				firePropertyChange(OPACITY_PROPERTY,Float.valueOf(lastOpacity),Float.valueOf(i));
-				Color c = preview.getForeground();
-				preview.setForeground(new Color(c.getRed(), c.getGreen(), c.getBlue(), i));
-			}
-			lastOpacity = v;
-		} finally {
-			adjustingOpacity--;
-		}
+		selection.setAlpha( (int)(255*v) );
 	}
 	
 	/** Sets the mode of this <code>ColorPicker</code>.
@@ -870,28 +997,18 @@ public class ColorPicker extends JPanel {
 		blue.radioButton.setSelected(mode==BLUE);
 
 		colorPanel.setMode(mode);
-		adjustingSlider++;
+		lastSliderValue = -1;
+		adjustingViews++;
 		try {
 			slider.setValue(0);
 			Option option = getSelectedOption();
 			slider.setInverted(mode==HUE);
 			slider.setMaximum(option.getMaximum());
-			slider.setValue( option.getIntValue() );
-			slider.repaint();
-			
-			if(mode==HUE || mode==SAT || mode==BRI) {
-				setHSB( hue.getFloatValue()/360f,
-						sat.getFloatValue()/100f,
-						bri.getFloatValue()/100f );
-			} else {
-				setRGB( scaleRed(red.getIntValue()),
-						scaleGreen(green.getIntValue()),
-						scaleBlue(blue.getIntValue()) );
-				
-			}
 		} finally {
-			adjustingSlider--;
+			adjustingViews--;
 		}
+		//the selection hasn't changed, but the panel and the slider now show a different part of it:
+		updateViews(ColorSelectionModel.RGB_CHANGED | ColorSelectionModel.HSB_CHANGED);
 	}
 	
 	/** This controls whether the radio buttons that adjust the mode are visible.
@@ -924,13 +1041,19 @@ public class ColorPicker extends JPanel {
 	}
 
 	/** Sets the current color of this <code>ColorPicker</code>.
-	 * This method simply calls <code>setRGB()</code> and <code>setOpacity()</code>.
+	 * This method simply calls <code>setRGB()</code> and <code>setOpacity()</code>,
+	 * as one change: the controls are only updated once.
 	 * @param c the new color to use.
 	 */
 	public void setColor(Color c) {
-		setRGB(c.getRed(),c.getGreen(),c.getBlue());
-		float opacity = ((float)c.getAlpha())/255f;
-		setOpacity(opacity);
+		selection.beginUpdate();
+		try {
+			setRGB(c.getRed(),c.getGreen(),c.getBlue());
+			float opacity = ((float)c.getAlpha())/255f;
+			setOpacity(opacity);
+		} finally {
+			selection.endUpdate();
+		}
 	}
 
 	// pre: v is in [0, max]
@@ -941,16 +1064,12 @@ public class ColorPicker extends JPanel {
 
 	// pre: v is in [0, 255]
 	// post: result is scale(x) close to v, for some x
-	int quantizeRed(int v) { return scaleRed(v >> (8-bpp[0])); }
-	int quantizeGreen(int v) { return scaleGreen(v >> (8-bpp[1])); }
-	int quantizeBlue(int v) { return scaleBlue(v >> (8-bpp[2])); }
+	int quantizeRed(int v) { return quantizer.red[v]; }
+	int quantizeGreen(int v) { return quantizer.green[v]; }
+	int quantizeBlue(int v) { return quantizer.blue[v]; }
 
 	int quantizeRGB(int v) {
-		int a = (v >> 24) & 0xff;
-		int r = quantizeRed((v >> 16) & 0xff);
-		int g = quantizeGreen((v >> 8) & 0xff);
-		int b = quantizeBlue(v & 0xff);
-		return (a << 24) | (r << 16) | (g << 8) | (b);
+		return quantizer.quantizeRGB(v);
 	}
 	
 	/** Sets the current color of this <code>ColorPicker</code>
@@ -967,71 +1086,133 @@ public class ColorPicker extends JPanel {
 		if(b<0 || b>255)
 			throw new IllegalArgumentException("The blue value ("+b+") must be between [0,255].");
 
-		r = quantizeRed(r);
-		g = quantizeGreen(g);
-		b = quantizeBlue(b);
-		
-		Color lastColor = getColor();
-		
-		boolean updateRGBSpinners = adjustingSpinners==0;
-		
-		adjustingSpinners++;
-		adjustingColorPanel++;
-		int alpha = this.alpha.getIntValue();
-		try {
-			if(updateRGBSpinners) {
-				red.setValue(r >> (8-bpp[0]));
-				green.setValue(g >> (8-bpp[1]));
-				blue.setValue(b >> (8-bpp[2]));
-			}
-			preview.setForeground(new Color(r,g,b, alpha));
-			float[] hsb = new float[3];
-			Color.RGBtoHSB(r, g, b, hsb);
-			hue.setValue( (int)(hsb[0]*360f+.49f));
-			sat.setValue( (int)(hsb[1]*100f+.49f));
-			bri.setValue( (int)(hsb[2]*100f+.49f));
-			colorPanel.setRGB(r, g, b);
-			updateHexField();
-			updateSlider();
-		} finally {
-			adjustingSpinners--;
-			adjustingColorPanel--;
-		}
-		Color newColor = getColor();
-		if(lastColor.equals(newColor)==false)
-			firePropertyChange(SELECTED_COLOR_PROPERTY,lastColor,newColor);
+		selection.setRGB(r, g, b);
 	}
 	
 	/** @return the current <code>Color</code> this <code>ColorPicker</code> has selected.
 	 * <P>This is equivalent to:
 	 * <BR><code>int[] i = getRGB();</code>
-	 * <BR><code>return new Color(i[0], i[1], i[2], opacitySlider.getValue());</code>
+	 * <BR><code>return new Color(i[0], i[1], i[2], (int)(255*getOpacity()));</code>
 	 */
 	public Color getColor() {
-		int[] i = getScaledRGB();
-		return new Color(i[0], i[1], i[2], opacitySlider.getValue());
+		return selection.getSnapshot().toColor();
 	}
-	
-	private void updateSlider() {
-		adjustingSlider++;
+
+	/** Brings the controls up to date with the selection.
+	 * <P>Each control is only updated if it shows a part of the color that changed.
+	 * While the value is adjusting the spinners and the hex field are left for
+	 * <code>textTimer</code>, but everything else is updated right away.
+	 * 
+	 * @param changes which parts of the color changed.
+	 * @see ColorSelectionModel#getChanges()
+	 */
+	private void updateViews(int changes) {
+		boolean rgbChanged = (changes & ColorSelectionModel.RGB_CHANGED)!=0;
+		boolean hsbChanged = (changes & ColorSelectionModel.HSB_CHANGED)!=0;
+		boolean alphaChanged = (changes & ColorSelectionModel.ALPHA_CHANGED)!=0;
+		adjustingViews++;
 		try {
-			int mode = getMode();
-			if(mode==HUE) {
-				slider.setValue( hue.getIntValue() );
-			} else if(mode==SAT) {
-				slider.setValue( sat.getIntValue() );
-			} else if(mode==BRI) {
-				slider.setValue( bri.getIntValue() );
-			} else if(mode==RED) {
-				slider.setValue( red.getIntValue() );
-			} else if(mode==GREEN) {
-				slider.setValue( green.getIntValue() );
-			} else if(mode==BLUE) {
-				slider.setValue( blue.getIntValue() );
+			if(valueIsAdjusting) {
+				deferredChanges |= changes;
+				if(!textTimer.isRunning())
+					textTimer.start();
+			} else {
+				//anything still deferred is older than this change, so it goes along with it:
+				textTimer.stop();
+				updateTextViews(changes | deferredChanges);
+				deferredChanges = 0;
+			}
+			if(alphaChanged) {
+				opacitySlider.setValue( selection.getAlpha() );
 			}
+			if(rgbChanged || alphaChanged) {
+				preview.setForeground(getColor());
+			}
+			if(rgbChanged || hsbChanged) {
+				int mode = getMode();
+				if(mode==HUE || mode==SAT || mode==BRI) {
+					colorPanel.setHSB(selection.getHue(), selection.getSaturation(), selection.getBrightness());
+				} else {
+					colorPanel.setRGB(selection.getRed(), selection.getGreen(), selection.getBlue());
+				}
+				updateSlider();
+			}
+		} finally {
+			adjustingViews--;
+		}
+	}
+	
+	/** The changes the spinners and the hex field haven't been updated with yet. */
+	private int deferredChanges = 0;
+
+	/** While the value is adjusting this updates the spinners and the hex field,
+	 * at most once per frame.  Formatting their text and laying them out is
+	 * slow, and nobody reads them in the middle of a drag.
+	 */
+	private javax.swing.Timer textTimer = new javax.swing.Timer(ColorPickerPanel.FRAME_DELAY, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			flushDeferredViews();
+		}
+	});
+
+	/** Updates the spinners and the hex field with any deferred changes now. */
+	private void flushDeferredViews() {
+		textTimer.stop();
+		int changes = deferredChanges;
+		deferredChanges = 0;
+		if(changes==0)
+			return;
+		adjustingViews++;
+		try {
+			updateTextViews(changes);
 		} finally {
-			adjustingSlider--;
+			adjustingViews--;
+		}
+	}
+
+	/** Updates the spinners and the hex field.  This must be called while <code>adjustingViews</code> is nonzero.
+	 * 
+	 * @param changes which parts of the color changed.
+	 */
+	private void updateTextViews(int changes) {
+		if((changes & ColorSelectionModel.RGB_CHANGED)!=0) {
+			int[] rgb = getUnscaledRGB();
+			red.setValue(rgb[0]);
+			green.setValue(rgb[1]);
+			blue.setValue(rgb[2]);
+			updateHexField();
+		}
+		if((changes & ColorSelectionModel.HSB_CHANGED)!=0) {
+			int[] hsb = getRoundedHSB();
+			hue.setValue(hsb[0]);
+			sat.setValue(hsb[1]);
+			bri.setValue(hsb[2]);
+		}
+		if((changes & ColorSelectionModel.ALPHA_CHANGED)!=0) {
+			alpha.setValue( selection.getAlpha() );
+		}
+	}
+
+	/** @return the hue in degrees, and the saturation and brightness as percentages, as the spinners show them. */
+	private int[] getRoundedHSB() {
+		return new int[] {
+				(int)(selection.getHue()*360f+.49f),
+				(int)(selection.getSaturation()*100f+.49f),
+				(int)(selection.getBrightness()*100f+.49f)
+		};
+	}
+	
+	private void updateSlider() {
+		int mode = getMode();
+		//the spinners may not be up to date yet, so this reads the selection:
+		if(mode==HUE || mode==SAT || mode==BRI) {
+			int[] hsb = getRoundedHSB();
+			slider.setValue( mode==HUE ? hsb[0] : (mode==SAT ? hsb[1] : hsb[2]) );
+		} else {
+			int[] rgb = getUnscaledRGB();
+			slider.setValue( mode==RED ? rgb[0] : (mode==GREEN ? rgb[1] : rgb[2]) );
 		}
+		//the colors along the track depend on the other values:
 		slider.repaint();
 	}
 	
@@ -1106,56 +1287,16 @@ public class ColorPicker extends JPanel {
 		if(b<0 || b>1)
 			throw new IllegalArgumentException("The brightness value ("+b+") must be between [0,1]");
 		
-		Color lastColor = getColor();
-		
-		boolean updateHSBSpinners = adjustingSpinners==0;
-		adjustingSpinners++;
-		adjustingColorPanel++;
-		try {
-			if(updateHSBSpinners) {
-				hue.setValue( (int)(h*360f+.49f));
-				sat.setValue( (int)(s*100f+.49f));
-				bri.setValue( (int)(b*100f+.49f));
-			}
-			
-			Color c = new Color(Color.HSBtoRGB(h, s, b));
-			int alpha = this.alpha.getIntValue();
-			c = new Color(quantizeRed(c.getRed()),
-					quantizeGreen(c.getGreen()),
-					quantizeBlue(c.getBlue()), alpha);
-			preview.setForeground(c);
-			red.setValue(c.getRed() >> (8-bpp[0]));
-			green.setValue(c.getGreen() >> (8-bpp[1]));
-			blue.setValue(c.getBlue() >> (8-bpp[2]));
-			colorPanel.setHSB(h, s, b);
-			updateHexField();
-			updateSlider();
-			slider.repaint();
-		} finally {
-			adjustingSpinners--;
-			adjustingColorPanel--;
-		}
-		Color newColor = getColor();
-		if(lastColor.equals(newColor)==false)
-			firePropertyChange(SELECTED_COLOR_PROPERTY,lastColor,newColor);
+		selection.setHSB(h, s, b);
 	}
 	
 	private void updateHexField() {
-		adjustingHexField++;
-		try {
-			int r = red.getIntValue();
-			int g = green.getIntValue();
-			int b = blue.getIntValue();
-			
-			int i = (r << (bpp[1]+bpp[2])) + (g << bpp[2]) +b;
-			String s = Integer.toHexString(i).toUpperCase();
-			while(s.length()<((bpp[0]+bpp[1]+bpp[2]+3)/4))
-				s = "0"+s;
-			if(hexField.getText().equalsIgnoreCase(s)==false)
-				hexField.setText(s);
-		} finally {
-			adjustingHexField--;
-		}
+		int i = getUnscaledColor();
+		String s = Integer.toHexString(i).toUpperCase();
+		while(s.length()<((bpp[0]+bpp[1]+bpp[2]+3)/4))
+			s = "0"+s;
+		if(hexField.getText().equalsIgnoreCase(s)==false)
+			hexField.setText(s);
 	}
 
 	class Option {
@@ -14,6 +14,8 @@
 package com.bric.swing;
 
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
 import javax.swing.event.*;
 import java.awt.*;
 import javax.swing.*;
@@ -51,14 +53,15 @@ import com.bric.awt.*;
 public class ColorPickerPanel extends JPanel {
 	private static final long serialVersionUID = 1L;
 	
-	/** The maximum size the graphic will be.  No matter
-	 *  how big the panel becomes, the graphic will not exceed
-	 *  this length.
-	 *  <P>(This is enforced because only 1 BufferedImage is used
-	 *  to render the graphic.  This image is created once at a fixed
-	 *  size and is never replaced.)
+	/** This used to be the maximum size the graphic could be.
+	 *  <P>The graphic now grows with the panel, and is rendered at the
+	 *  resolution of the screen it is on, so this is no longer used.
+	 *  @deprecated the graphic is no longer limited in size.
 	 */
+	@Deprecated
 	public static int MAX_SIZE = 325;
+	/** The preferred width and height of this panel. */
+	private static final int PREFERRED_SIZE = 243;
 	private int mode = ColorPicker.BRI;
 	private Point point = new Point(0,0);
 	private Vector changeListeners;
@@ -73,60 +76,150 @@ public class ColorPickerPanel extends JPanel {
 	MouseInputListener mouseListener = new MouseInputAdapter() {
 		public void mousePressed(MouseEvent e) {
 			requestFocus();
-			Point p = e.getPoint();
-			int size = Math.min(MAX_SIZE, Math.min(getWidth()-imagePadding.left-imagePadding.right,getHeight()-imagePadding.top-imagePadding.bottom));
-			p.translate(-(getWidth()/2-size/2), -(getHeight()/2-size/2));
-			if(mode==ColorPicker.BRI || mode==ColorPicker.SAT) {
-				//the two circular views:
-				double radius = ((double)size)/2.0;
-				double x = p.getX()-size/2.0;
-				double y = p.getY()-size/2.0;
-				double r = Math.sqrt(x*x+y*y)/radius;
-				double theta = Math.atan2(y,x)/(Math.PI*2.0);
-				
-				if(r>1) r = 1;
-				
-				if(mode==ColorPicker.BRI) {
-					setHSB((float)(theta+.25f),
-							(float)(r),
-							bri);
-				} else {
-					setHSB((float)(theta+.25f),
-							sat,
-							(float)(r) );
-				}
-			} else if(mode==ColorPicker.HUE) {
-				float s = ((float)p.x)/((float)size);
-				float b = ((float)p.y)/((float)size);
-				if(s<0) s = 0;
-				if(s>1) s = 1;
-				if(b<0) b = 0;
-				if(b>1) b = 1;
-				setHSB( hue,
-						s,
-						b );
-			} else {
-				int x2 = p.x*255/size;
-				int y2 = p.y*255/size;
-				if(x2<0) x2 = 0;
-				if(x2>255) x2 = 255;
-				if(y2<0) y2 = 0;
-				if(y2>255) y2 = 255;
-				
-				if(mode==ColorPicker.RED) {
-					setRGB(red,x2,y2);
-				} else if(mode==ColorPicker.GREEN) {
-					setRGB(x2,green,y2);
-				} else {
-					setRGB(x2,y2,blue);
-				}
-			}
+			//the gesture starts here, so the press isn't committed separately from the drag:
+			setValueIsAdjusting(true);
+			//a press is applied right away, and replaces any point still waiting for the next frame:
+			frameTimer.stop();
+			pendingPoint = null;
+			selectPoint(toImagePoint(e.getPoint()));
 		}
 
 		public void mouseDragged(MouseEvent e) {
-			mousePressed(e);
+			setValueIsAdjusting(true);
+			queuePoint(toImagePoint(e.getPoint()));
+		}
+
+		public void mouseReleased(MouseEvent e) {
+			flushPendingPoint();
+			setValueIsAdjusting(false);
 		}
 	};
+
+	/** Converts a point in this component to a point relative to the image. */
+	private Point toImagePoint(Point p) {
+		int size = getImageSize();
+		p.translate(-(getWidth()/2-size/2), -(getHeight()/2-size/2));
+		return p;
+	}
+
+	/** Selects the color at a point.
+	 * 
+	 * @param p a point relative to the image.
+	 */
+	private void selectPoint(Point p) {
+		int size = getImageSize();
+		if(mode==ColorPicker.BRI || mode==ColorPicker.SAT) {
+			//the two circular views:
+			double radius = ((double)size)/2.0;
+			double x = p.getX()-size/2.0;
+			double y = p.getY()-size/2.0;
+			double r = Math.sqrt(x*x+y*y)/radius;
+			double theta = Math.atan2(y,x)/(Math.PI*2.0);
+			
+			if(r>1) r = 1;
+			
+			if(mode==ColorPicker.BRI) {
+				setHSB((float)(theta+.25f),
+						(float)(r),
+						bri);
+			} else {
+				setHSB((float)(theta+.25f),
+						sat,
+						(float)(r) );
+			}
+		} else if(mode==ColorPicker.HUE) {
+			float s = ((float)p.x)/((float)size);
+			float b = ((float)p.y)/((float)size);
+			if(s<0) s = 0;
+			if(s>1) s = 1;
+			if(b<0) b = 0;
+			if(b>1) b = 1;
+			setHSB( hue,
+					s,
+					b );
+		} else {
+			int x2 = p.x*255/size;
+			int y2 = p.y*255/size;
+			if(x2<0) x2 = 0;
+			if(x2>255) x2 = 255;
+			if(y2<0) y2 = 0;
+			if(y2>255) y2 = 255;
+			
+			if(mode==ColorPicker.RED) {
+				setRGB(red,x2,y2);
+			} else if(mode==ColorPicker.GREEN) {
+				setRGB(x2,green,y2);
+			} else {
+				setRGB(x2,y2,blue);
+			}
+		}
+	}
+
+	/** The interval between frames when the screen doesn't report its refresh rate. */
+	static final int FRAME_DELAY = 16;
+
+	/** The newest point the user dragged or moved the keyboard to, relative to the image,
+	 * that hasn't been applied yet.  This is <code>null</code> if there is no such point.
+	 */
+	private Point pendingPoint;
+
+	/** Paces drags and key repeats to the refresh rate of the screen.
+	 * <P>A mouse or tablet can report many more points than the screen can
+	 * show, and each one regenerates the image.  So the first point is applied
+	 * right away, and then at most one point is applied per frame: the newest
+	 * one.  The timer stops when a frame passes with nothing new.
+	 */
+	javax.swing.Timer frameTimer = new javax.swing.Timer(FRAME_DELAY, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			if(pendingPoint==null) {
+				frameTimer.stop();
+				return;
+			}
+			Point p = pendingPoint;
+			pendingPoint = null;
+			selectPoint(p);
+		}
+	});
+
+	/** Selects the color at a point, or saves the point for the next frame
+	 * if a point has already been applied in this frame.
+	 * 
+	 * @param p a point relative to the image.
+	 */
+	private void queuePoint(Point p) {
+		if(frameTimer.isRunning()) {
+			pendingPoint = p;
+			return;
+		}
+		int delay = getFrameDelay();
+		frameTimer.setInitialDelay(delay);
+		frameTimer.setDelay(delay);
+		frameTimer.start();
+		selectPoint(p);
+	}
+
+	/** Applies the point waiting for the next frame now, if there is one.
+	 * This makes sure the last point of a gesture is never lost.
+	 */
+	private void flushPendingPoint() {
+		frameTimer.stop();
+		Point p = pendingPoint;
+		pendingPoint = null;
+		if(p!=null)
+			selectPoint(p);
+	}
+
+	/** @return the number of milliseconds between frames on this panel's screen. */
+	private int getFrameDelay() {
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if(gc!=null) {
+			DisplayMode displayMode = gc.getDevice().getDisplayMode();
+			int rate = displayMode==null ? DisplayMode.REFRESH_RATE_UNKNOWN : displayMode.getRefreshRate();
+			if(rate>0)
+				return Math.max(1, 1000/rate);
+		}
+		return FRAME_DELAY;
+	}
 	
 	KeyListener keyListener = new KeyAdapter() {
 		public void keyPressed(KeyEvent e) {
@@ -148,17 +241,9 @@ public class ColorPickerPanel extends JPanel {
 				multiplier = 5;
 			}
 			if(dx!=0 || dy!=0) {
-				int size = Math.min(MAX_SIZE, Math.min(getWidth()-imagePadding.left-imagePadding.right,getHeight()-imagePadding.top-imagePadding.bottom));
-				
-				int offsetX = getWidth()/2-size/2;
-				int offsetY = getHeight()/2-size/2;
-				mouseListener.mousePressed(new MouseEvent(ColorPickerPanel.this,
-						MouseEvent.MOUSE_PRESSED,
-						System.currentTimeMillis(), 0,
-						point.x+multiplier*dx+offsetX,
-						point.y+multiplier*dy+offsetY,
-						1, false
-						));
+				//key repeats move on from the point that hasn't been applied yet:
+				Point p = pendingPoint==null ? point : pendingPoint;
+				queuePoint(new Point(p.x+multiplier*dx, p.y+multiplier*dy));
 			}
 		}
 	};
@@ -172,24 +257,61 @@ public class ColorPickerPanel extends JPanel {
 		}
 	};
 	
+	/** How long, in milliseconds, the size must hold still before the image
+	 * is rendered at the new size.
+	 */
+	static final int RESIZE_DELAY = 100;
+
+	/** While the component is being resized this paints a scaled copy of the
+	 * last image, and renders just once after the size settles.
+	 */
+	javax.swing.Timer resizeTimer = new javax.swing.Timer(RESIZE_DELAY, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			regenerateImage();
+		}
+	});
+
 	ComponentListener componentListener = new ComponentAdapter() {
 
 		public void componentResized(ComponentEvent e) {
 			regeneratePoint();
-			regenerateImage();
+			if(image==null && completed.get()==null) {
+				//there is nothing to scale yet
+				regenerateImage();
+			} else {
+				resizeTimer.restart();
+				repaint();
+			}
 		}
 		
 	};
 	
-	BufferedImage image = new BufferedImage(MAX_SIZE, MAX_SIZE, BufferedImage.TYPE_INT_ARGB);
+	/** The last image that was completely rendered.  Only the event dispatch
+	 * thread reads or replaces this, and nothing ever draws into it.
+	 */
+	BufferedImage image;
+
+	/** The newest image the renderer has finished, if <code>paint()</code>
+	 * hasn't picked it up yet.
+	 */
+	private final AtomicReference<BufferedImage> completed = new AtomicReference<BufferedImage>();
+
+	/** An image that is no longer painted, that the renderer may draw into again. */
+	private final AtomicReference<BufferedImage> spare = new AtomicReference<BufferedImage>();
+
+	/** This is incremented every time the image needs to be regenerated.  A render
+	 * that sees a newer value has been superseded, and gives up.
+	 */
+	private final AtomicInteger generation = new AtomicInteger();
+
 	ColorPicker colorPicker;
 	
 	/** Creates a new <code>ColorPickerPanel</code> */
 	public ColorPickerPanel(ColorPicker cp) {
 		colorPicker = cp;
-		setMaximumSize(new Dimension(MAX_SIZE+imagePadding.left+imagePadding.right, 
-				MAX_SIZE+imagePadding.top+imagePadding.bottom));
-		setPreferredSize(new Dimension( (int)(MAX_SIZE*.75), (int)(MAX_SIZE*.75)));
+		resizeTimer.setRepeats(false);
+		idleTimer.setRepeats(false);
+		setPreferredSize(new Dimension(PREFERRED_SIZE, PREFERRED_SIZE));
 		
 		setRGB(0,0,0);
 		addMouseListener(mouseListener);
@@ -237,13 +359,137 @@ public class ColorPickerPanel extends JPanel {
 	}
 	
 	Insets imagePadding = new Insets(6,6,6,6);
+
+	/** The ratio of device pixels to user space units of the screen this
+	 * panel was on the last time it was painted, or zero if it hasn't been painted yet.
+	 */
+	private double deviceScale = 0;
+
+	/** @return the width and height of the graphic, in user space. */
+	private int getImageSize() {
+		return Math.min(getWidth()-imagePadding.left-imagePadding.right,getHeight()-imagePadding.top-imagePadding.bottom);
+	}
+
+	/** @return the ratio of device pixels to user space units.  On a HiDPI
+	 * screen this is 2 or more.
+	 */
+	private double getDeviceScale() {
+		if(deviceScale>0)
+			return deviceScale;
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if(gc==null)
+			return 1;
+		return gc.getDefaultTransform().getScaleX();
+	}
+
+	/** @return the number of device pixels that <code>size</code> user space units cover. */
+	private int getDeviceSize(int size) {
+		//the tolerance keeps rounding error from adding a whole pixel:
+		return (int)Math.ceil(size*getDeviceScale()-.0001);
+	}
 	
 	public void paint(Graphics g) {
 		super.paint(g);
 
 		Graphics2D g2 = (Graphics2D)g;
-		int size = Math.min(MAX_SIZE, Math.min(getWidth()-imagePadding.left-imagePadding.right,getHeight()-imagePadding.top-imagePadding.bottom));
+		int size = getImageSize();
+
+		/* The image is rendered at the resolution of the screen, so it
+		 * isn't scaled up when it is painted there.  If that resolution
+		 * changed (for example, the window moved to a different screen)
+		 * the image is rendered again.  The scale is taken from the screen,
+		 * not from this Graphics: when printing, or painting into a scaled
+		 * buffer, the image is just drawn scaled.
+		 */
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		double scale = gc==null ? 0 : Math.abs(gc.getDefaultTransform().getScaleX());
+		if(scale>0 && scale!=getDeviceScale()) {
+			deviceScale = scale;
+			regenerateImage();
+		} else if(scale>0) {
+			deviceScale = scale;
+		}
+
+		BufferedImage next = completed.getAndSet(null);
+		if(next!=null) {
+			if(image!=null)
+				spare.set(image);
+			image = next;
+		}
+
+		g2.drawImage(getBackgroundLayer(size), 0, 0, getWidth(), getHeight(), null);
 		
+		g2.translate(getWidth()/2-size/2, getHeight()/2-size/2);
+		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+		g2.setColor(Color.white);
+		g2.setStroke(new BasicStroke(1));
+		g2.draw(new Ellipse2D.Float(point.x-3,point.y-3,6,6));
+		g2.setColor(Color.black);
+		g2.draw(new Ellipse2D.Float(point.x-4,point.y-4,8,8));
+		
+		g.translate(-imagePadding.left, -imagePadding.top);
+	}
+
+	/** Everything <code>paint()</code> draws except the marker: the focus ring,
+	 * the shadow, the image and the bevel.  This is only redrawn when one of
+	 * those changes, so moving the marker just copies it.
+	 * <P>This is compatible with the screen, so that copy can be accelerated.
+	 * When this panel is opaque the layer is filled with the background color
+	 * and is opaque too.
+	 */
+	private BufferedImage background;
+
+	/** What <code>background</code> was drawn with. */
+	private BufferedImage backgroundImage;
+	private boolean backgroundFocus, backgroundWheel, backgroundOpaque;
+	private int backgroundSize;
+	private Color backgroundColor;
+	private GraphicsConfiguration backgroundConfiguration;
+
+	/** @return the background layer, which covers the whole panel at
+	 * the resolution of the device.
+	 */
+	private BufferedImage getBackgroundLayer(int size) {
+		int w = getDeviceSize(getWidth());
+		int h = getDeviceSize(getHeight());
+		boolean wheel = mode==ColorPicker.SAT || mode==ColorPicker.BRI;
+		boolean opaque = isOpaque();
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if(background!=null && background.getWidth()==w && background.getHeight()==h &&
+				backgroundImage==image && backgroundFocus==hasFocus() &&
+				backgroundWheel==wheel && backgroundSize==size &&
+				backgroundOpaque==opaque && backgroundColor==getBackground() &&
+				backgroundConfiguration==gc) {
+			return background;
+		}
+		if(background==null || background.getWidth()!=w || background.getHeight()!=h ||
+				backgroundOpaque!=opaque || backgroundConfiguration!=gc) {
+			background = PaintUtils.createCompatibleImage(this, Math.max(1,w), Math.max(1,h), 
+					opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT);
+		}
+		Graphics2D g2 = background.createGraphics();
+		if(opaque) {
+			g2.setColor(getBackground());
+		} else {
+			g2.setComposite(AlphaComposite.Clear);
+		}
+		g2.fillRect(0,0,background.getWidth(),background.getHeight());
+		g2.setComposite(AlphaComposite.SrcOver);
+		g2.scale(getDeviceScale(), getDeviceScale());
+		paintBackground(g2, size);
+		g2.dispose();
+		backgroundImage = image;
+		backgroundFocus = hasFocus();
+		backgroundWheel = wheel;
+		backgroundSize = size;
+		backgroundOpaque = opaque;
+		backgroundColor = getBackground();
+		backgroundConfiguration = gc;
+		return background;
+	}
+
+	/** Paints the focus ring, the shadow, the image and the bevel. */
+	private void paintBackground(Graphics2D g2,int size) {
 		g2.translate(getWidth()/2-size/2, getHeight()/2-size/2);
 		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -272,7 +518,11 @@ public class ColorPickerPanel extends JPanel {
 			g2.translate(-2,-2);
 		}
 		
-		g2.drawImage(image, 0, 0, size, size, 0, 0, size, size, null);
+		if(image!=null) {
+			if(image.getWidth()!=getDeviceSize(size))
+				g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+			g2.drawImage(image, 0, 0, size, size, null);
+		}
 		
 		if(shape instanceof Rectangle) {
 			Rectangle r = (Rectangle)shape;
@@ -281,14 +531,18 @@ public class ColorPickerPanel extends JPanel {
 			g2.setColor(new Color(0,0,0,120));
 			g2.draw(shape);
 		}
-		
-		g2.setColor(Color.white);
-		g2.setStroke(new BasicStroke(1));
-		g2.draw(new Ellipse2D.Float(point.x-3,point.y-3,6,6));
-		g2.setColor(Color.black);
-		g2.draw(new Ellipse2D.Float(point.x-4,point.y-4,8,8));
-		
-		g.translate(-imagePadding.left, -imagePadding.top);
+	}
+
+	/** Repaints the marker where it was and where it is now, but not the rest of the panel.
+	 * @param oldPoint where the marker was.
+	 */
+	private void repaintMarker(Point oldPoint) {
+		int size = getImageSize();
+		int x = getWidth()/2-size/2;
+		int y = getHeight()/2-size/2;
+		//the outer ring is 8 pixels wide, plus its antialiased stroke:
+		repaint(x+oldPoint.x-5, y+oldPoint.y-5, 11, 11);
+		repaint(x+point.x-5, y+point.y-5, 11, 11);
 	}
 	
 	/** Set the mode of this panel.
@@ -303,6 +557,10 @@ public class ColorPickerPanel extends JPanel {
 		if(this.mode==mode)
 			return;
 		this.mode = mode;
+		//a point waiting for the next frame belongs to the old graphic:
+		frameTimer.stop();
+		pendingPoint = null;
+		cancelPreRender();
 		regenerateImage();
 		regeneratePoint();
 	}
@@ -350,13 +608,13 @@ public class ColorPickerPanel extends JPanel {
 					}
 				}
 			} else {
-				float[] hsb = new float[3];
-				Color.RGBtoHSB(r, g, b, hsb);
+				float[] hsb = ColorConversion.RGBtoHSB(r, g, b, null);
 				setHSB(hsb[0],hsb[1],hsb[2]);
 				return;
 			}
+			Point oldPoint = point;
 			regeneratePoint();
-			repaint();
+			repaintMarker(oldPoint);
 			fireChangeListeners();
 		}
 	}
@@ -430,26 +688,27 @@ public class ColorPickerPanel extends JPanel {
 				}
 			} else {
 
-				Color c = new Color(Color.HSBtoRGB(h, s, b));
-				setRGB(c.getRed(), c.getGreen(), c.getBlue());
+				int rgb = ColorConversion.HSBtoRGB(h, s, b);
+				setRGB((rgb >> 16) & 0xff, (rgb >> 8) & 0xff, rgb & 0xff);
 				return;
 			}
 			
 
-			Color c = new Color(Color.HSBtoRGB(hue, sat, bri));
-			red = colorPicker.quantizeRed(c.getRed());
-			green = colorPicker.quantizeGreen(c.getGreen());
-			blue = colorPicker.quantizeBlue(c.getBlue());
+			int rgb = ColorConversion.HSBtoRGB(hue, sat, bri);
+			red = colorPicker.quantizeRed((rgb >> 16) & 0xff);
+			green = colorPicker.quantizeGreen((rgb >> 8) & 0xff);
+			blue = colorPicker.quantizeBlue(rgb & 0xff);
 			
+			Point oldPoint = point;
 			regeneratePoint();
-			repaint();
+			repaintMarker(oldPoint);
 			fireChangeListeners();
 		}		
 	}
 	
 	/** Recalculates the (x,y) point used to indicate the selected color. */
 	private void regeneratePoint() {
-		int size = Math.min(MAX_SIZE, Math.min(getWidth()-imagePadding.left-imagePadding.right,getHeight()-imagePadding.top-imagePadding.bottom));
+		int size = getImageSize();
 		if(mode==ColorPicker.HUE || mode==ColorPicker.SAT || mode==ColorPicker.BRI) {
 			if(mode==ColorPicker.HUE) {
 				point = new Point((int)(sat*size),(int)(bri*size));
@@ -482,82 +741,385 @@ public class ColorPickerPanel extends JPanel {
 		}
 	}
 	
-	/** A row of pixel data we recycle every time we regenerate this image. */
-	private int[] row = new int[MAX_SIZE];
-	/** Regenerates the image. */
-	private synchronized void regenerateImage() {
-		int size = Math.min(MAX_SIZE, Math.min(getWidth()-imagePadding.left-imagePadding.right,getHeight()-imagePadding.top-imagePadding.bottom));
-		
-		if(mode==ColorPicker.BRI || mode==ColorPicker.SAT) {
-			float bri2 = this.bri;
-			float sat2 = this.sat;
-			float radius = ((float)size)/2f;
-			float hue2;
-			float k = 1.2f; //the number of pixels to antialias
-			for(int y = 0; y<size; y++) {
-				float y2 = (y-size/2f);
-				for(int x = 0; x<size; x++) {
-					float x2 = (x-size/2f);
-					double theta = Math.atan2(y2,x2)-3*Math.PI/2.0;
-					if(theta<0) theta+=2*Math.PI;
-					
-					double r = Math.sqrt(x2*x2+y2*y2);
-					if(r<=radius) {
-						if(mode==ColorPicker.BRI) {
-							hue2 = (float)(theta/(2*Math.PI));
-							sat2 = (float)(r/radius);
-						} else { //SAT
-							hue2 = (float)(theta/(2*Math.PI));
-							bri2 = (float)(r/radius);
-						}
-						row[x] = Color.HSBtoRGB(hue2, sat2, bri2);
-						row[x] = colorPicker.quantizeRGB(row[x]);
-						if(r>radius-k) {
-							int alpha = (int)(255-255*(r-radius+k)/k);
-							if(alpha<0) alpha = 0;
-							if(alpha>255) alpha = 255;
-							row[x] = row[x] & 0xffffff+(alpha << 24);
+	/** Whether the graphic is rendered in parallel, in horizontal stripes.
+	 * <P>When this is <code>true</code> the rows of the graphic are divided among
+	 * the threads of the common <code>ForkJoinPool</code>, and the background
+	 * renderer waits for them to finish.  The result is exactly the same either way;
+	 * this only pays off on machines with several cores.
+	 */
+	public static boolean PARALLEL_RENDERING = false;
+
+	/** The fewest rows a parallel task will render without splitting. */
+	private static final int STRIPE_HEIGHT = 16;
+
+	/** The number of rows rendered between checks for a newer request. */
+	private static final int CHUNK_HEIGHT = 64;
+
+	/** The thread that regenerates images in the background.  All panels share it. */
+	private static final ExecutorService renderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "ColorPickerPanel Renderer");
+			thread.setDaemon(true);
+			return thread;
+		}
+	});
+
+	/** The number of foreground renders that have been scheduled and haven't finished. */
+	private static final AtomicInteger pendingRenders = new AtomicInteger();
+
+	/** The pre-renderer waits on this until it may work.  It is notified when
+	 * <code>pendingRenders</code> drops to zero, when the event dispatch thread
+	 * answers the pre-renderer, and when pre-rendering is cancelled.
+	 */
+	private static final Object idleLock = new Object();
+
+	/** The key of the graphic the renderer is working on (or will work on next)
+	 * for this panel, or <code>null</code>.  The pre-renderer skips this graphic.
+	 */
+	private final AtomicReference<RenderCache.Key> foregroundKey = new AtomicReference<RenderCache.Key>();
+
+	/** The thread that renders graphics the user will probably ask for next.
+	 * All panels share it.  It runs at the lowest priority, and it only works
+	 * while the event dispatch thread and the renderer are idle.
+	 */
+	private static final ExecutorService preRenderer = Executors.newSingleThreadExecutor(new ThreadFactory() {
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "ColorPickerPanel Pre-renderer");
+			thread.setDaemon(true);
+			thread.setPriority(Thread.MIN_PRIORITY);
+			return thread;
+		}
+	});
+
+	/** This is incremented every time pre-rendering is requested or cancelled.  A
+	 * pre-render that sees a newer value gives up.
+	 */
+	private final AtomicInteger preRenderGeneration = new AtomicInteger();
+
+	/** Renders a horizontal stripe of the image. */
+	static class RenderStripe extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		final RenderKernel kernel;
+		final int[] dst;
+		final int scan, y0, y1;
+
+		RenderStripe(RenderKernel kernel,int[] dst,int scan,int y0,int y1) {
+			this.kernel = kernel;
+			this.dst = dst;
+			this.scan = scan;
+			this.y0 = y0;
+			this.y1 = y1;
+		}
+
+		protected void compute() {
+			if(y1-y0<=STRIPE_HEIGHT) {
+				kernel.render(dst, 0, scan, y0, y1);
+			} else {
+				int mid = (y0+y1)/2;
+				invokeAll(new RenderStripe(kernel, dst, scan, y0, mid),
+						new RenderStripe(kernel, dst, scan, mid, y1));
+			}
+		}
+	}
+
+	/** While the value is adjusting, the image is rendered at this fraction of its full size. */
+	private static final int ADJUSTING_DIVISOR = 2;
+
+	/** The smallest reduced image worth rendering. */
+	private static final int MIN_REDUCED_SIZE = 48;
+
+	/** How long input must be idle, in milliseconds, before a reduced image is
+	 * replaced with a full quality image while the value is still adjusting.
+	 */
+	private static final int IDLE_DELAY = 150;
+
+	private boolean valueIsAdjusting = false;
+
+	/** Whether the last image requested was rendered at a reduced size. */
+	private boolean reducedImage = false;
+
+	private javax.swing.Timer idleTimer = new javax.swing.Timer(IDLE_DELAY, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			if(reducedImage)
+				regenerateImage(true);
+		}
+	});
+
+	/** Sets whether the selected color is changing as part of a gesture,
+	 * such as a mouse drag in this panel or on the <code>ColorPicker</code>'s slider.
+	 * <P>While this is <code>true</code> the graphic is rendered at a reduced
+	 * resolution to keep up with the gesture.  When it becomes <code>false</code>,
+	 * or when the input has been idle for a moment, it is rendered at full quality.
+	 * <P>This fires a <code>PropertyChangeEvent</code> for
+	 * <code>ColorPicker.VALUE_IS_ADJUSTING_PROPERTY</code> when it changes.
+	 */
+	public void setValueIsAdjusting(boolean b) {
+		if(valueIsAdjusting==b)
+			return;
+		valueIsAdjusting = b;
+		if(!b) {
+			cancelPreRender();
+			if(reducedImage)
+				regenerateImage(true);
+		}
+		firePropertyChange(ColorPicker.VALUE_IS_ADJUSTING_PROPERTY, !b, b);
+	}
+
+	/** @return whether the selected color is changing as part of a gesture.
+	 * @see #setValueIsAdjusting(boolean)
+	 */
+	public boolean getValueIsAdjusting() {
+		return valueIsAdjusting;
+	}
+
+	/** Regenerates the image.
+	 * <P>This only schedules the work: the image is rendered on a background
+	 * thread, and <code>paint()</code> keeps showing the last complete image
+	 * until the new one is finished.
+	 */
+	private void regenerateImage() {
+		regenerateImage(!valueIsAdjusting);
+	}
+
+	/** Regenerates the image.
+	 * @param fullQuality if this is <code>false</code> the image may be
+	 * rendered at a reduced size, and scaled up when it is painted.
+	 */
+	private void regenerateImage(boolean fullQuality) {
+		resizeTimer.stop();
+		final int myGeneration = generation.incrementAndGet();
+		int fullSize = getDeviceSize(getImageSize());
+		reducedImage = !fullQuality && fullSize>=MIN_REDUCED_SIZE*ADJUSTING_DIVISOR;
+		final int size = reducedImage ? fullSize/ADJUSTING_DIVISOR : fullSize;
+		//only full quality graphics are worth keeping between sessions:
+		final boolean persistent = !reducedImage;
+		if(reducedImage) {
+			idleTimer.restart();
+		} else {
+			idleTimer.stop();
+		}
+		if(size<=0)
+			return;
+		final int mode = this.mode;
+		final float hue = this.hue, sat = this.sat, bri = this.bri;
+		final int red = this.red, green = this.green, blue = this.blue;
+		final RenderCache.Key key = createKey(mode, size, hue, sat, bri, red, green, blue);
+		foregroundKey.set(key);
+		pendingRenders.incrementAndGet();
+		renderer.execute(new Runnable() {
+			public void run() {
+				try {
+					render();
+				} finally {
+					foregroundKey.compareAndSet(key, null);
+					if(pendingRenders.decrementAndGet()==0) {
+						synchronized(idleLock) {
+							idleLock.notifyAll();
 						}
-					} else {
-						row[x] = 0x00000000;
 					}
 				}
-				image.getRaster().setDataElements(0, y, size, 1, row);
 			}
-		} else if(mode==ColorPicker.HUE) {
-			float hue2 = this.hue;
-			for(int y = 0; y<size; y++) {
-				float y2 = ((float)y)/((float)(size-1));
-				for(int x = 0; x<size; x++) {
-					float x2 = ((float)x)/((float)(size-1));
-					row[x] = Color.HSBtoRGB(hue2, x2, y2);
-					row[x] = colorPicker.quantizeRGB(row[x]);
+
+			private void render() {
+				if(generation.get()!=myGeneration)
+					return;
+				//only the wheels have transparent pixels:
+				int type = (mode==ColorPicker.SAT || mode==ColorPicker.BRI) ? 
+						BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB;
+				BufferedImage dst = spare.getAndSet(null);
+				if(dst==null || dst.getWidth()!=size || dst.getHeight()!=size || dst.getType()!=type)
+					dst = new BufferedImage(size, size, type);
+				int[] data = ((DataBufferInt)dst.getRaster().getDataBuffer()).getData();
+				int[] cached = RenderCache.get(key);
+				//a graphic of the wrong size can only come from a bad cache file: render instead
+				if(cached!=null && cached.length==size*size) {
+					System.arraycopy(cached, 0, data, 0, size*size);
+					//a pre-rendered graphic is now shown at full quality, so it is worth saving too:
+					if(persistent)
+						RenderCache.setPersistent(key);
+				} else {
+					RenderKernel kernel = createKernel(colorPicker.quantizer, mode, size, hue, sat, bri, red, green, blue);
+					for(int y = 0; y<size; y+=CHUNK_HEIGHT) {
+						if(generation.get()!=myGeneration) {
+							spare.compareAndSet(null, dst);
+							return;
+						}
+						int y1 = Math.min(size, y+CHUNK_HEIGHT);
+						if(PARALLEL_RENDERING && y1-y>STRIPE_HEIGHT) {
+							ForkJoinPool.commonPool().invoke(new RenderStripe(kernel, data, size, y, y1));
+						} else {
+							kernel.render(data, 0, size, y, y1);
+						}
+					}
+					RenderCache.put(key, data, persistent);
 				}
-				image.getRaster().setDataElements(0, y, image.getWidth(), 1, row);
+				BufferedImage old = completed.getAndSet(dst);
+				if(old!=null)
+					spare.set(old);
+				repaint();
 			}
-		} else { //mode is RED, GREEN, or BLUE
-			int red2 = red;
-			int green2 = green;
-			int blue2 = blue;
-			for(int y = 0; y<size; y++) {
-				// float y2 = ((float)y)/((float)(size-1));
-				for(int x = 0; x<size; x++) {
-					// float x2 = ((float)x)/((float)(size-1));
-					if(mode==ColorPicker.RED) {
-						green2 = colorPicker.quantizeGreen((x*256/size));
-						blue2 = colorPicker.quantizeBlue((y*256/size));
+		});
+	}
+
+	/** Renders graphics for other values of the property this panel's mode holds
+	 * constant, such as the values next to the slider's thumb in the direction it is
+	 * being dragged.  They are stored in the <code>RenderCache</code>, so if the
+	 * user does ask for them they are ready right away.
+	 * <P>This replaces any pre-rendering requested earlier.  The graphics are rendered
+	 * at the size the current image would be, and only while the
+	 * event dispatch thread and the renderer have nothing else to do.
+	 * 
+	 * @param values the values to render, in the order they should be rendered.
+	 * In HUE, SAT and BRI mode these are from [0,1].  In RED, GREEN and BLUE mode they
+	 * are channel values from [0,255].
+	 */
+	void preRender(final float[] values) {
+		final int myGeneration = preRenderGeneration.incrementAndGet();
+		//wake up an earlier pre-render that is waiting, so it sees it was superseded:
+		synchronized(idleLock) {
+			idleLock.notifyAll();
+		}
+		int fullSize = getDeviceSize(getImageSize());
+		final int size = (valueIsAdjusting && fullSize>=MIN_REDUCED_SIZE*ADJUSTING_DIVISOR) ? 
+				fullSize/ADJUSTING_DIVISOR : fullSize;
+		if(size<=0 || values.length==0)
+			return;
+		final int mode = this.mode;
+		final float hue = this.hue, sat = this.sat, bri = this.bri;
+		final int red = this.red, green = this.green, blue = this.blue;
+		preRenderer.execute(new Runnable() {
+			public void run() {
+				for(int a = 0; a<values.length; a++) {
+					float h = hue, s = sat, b = bri;
+					int r = red, g = green, bl = blue;
+					if(mode==ColorPicker.HUE) {
+						h = values[a];
+					} else if(mode==ColorPicker.SAT) {
+						s = values[a];
+					} else if(mode==ColorPicker.BRI) {
+						b = values[a];
+					} else if(mode==ColorPicker.RED) {
+						r = (int)values[a];
 					} else if(mode==ColorPicker.GREEN) {
-						red2 = colorPicker.quantizeRed((x*256/size));
-						blue2 = colorPicker.quantizeBlue((y*256/size));
+						g = (int)values[a];
 					} else {
-						red2 = colorPicker.quantizeRed((x*256/size));
-						green2 = colorPicker.quantizeGreen((y*256/size));
+						bl = (int)values[a];
+					}
+					RenderCache.Key key = createKey(mode, size, h, s, b, r, g, bl);
+					if(RenderCache.contains(key) || key.equals(foregroundKey.get()))
+						continue;
+					//the cache keeps this array, so it isn't copied:
+					int[] data = new int[size*size];
+					RenderKernel kernel = createKernel(colorPicker.quantizer, mode, size, h, s, b, r, g, bl);
+					for(int y = 0; y<size; y+=CHUNK_HEIGHT) {
+						if(!waitUntilIdle(myGeneration))
+							return;
+						kernel.render(data, 0, size, y, Math.min(size, y+CHUNK_HEIGHT));
 					}
-					row[x] = 0xFF000000 + (red2 << 16) + (green2 << 8) + blue2;
+					RenderCache.putOwned(key, data);
+				}
+			}
+		});
+	}
+
+	/** Stops any pre-rendering this panel requested. */
+	void cancelPreRender() {
+		preRenderGeneration.incrementAndGet();
+		synchronized(idleLock) {
+			idleLock.notifyAll();
+		}
+	}
+
+	/** Waits until no foreground render is pending, and then until the event
+	 * dispatch thread says it is idle.
+	 * <P>Nothing here polls.  The pre-renderer sleeps until the last pending render
+	 * finishes, and then posts an <code>IdleGate</code> and sleeps until the event
+	 * dispatch thread runs it.  That can only happen once the handler the event
+	 * dispatch thread was running has returned, and the gate only lets the
+	 * pre-renderer go if no other events are queued behind it.  So each chunk the
+	 * pre-renderer renders is allowed by the event dispatch thread.
+	 * 
+	 * @return <code>false</code> if the pre-render was cancelled or superseded while waiting.
+	 */
+	private boolean waitUntilIdle(int myGeneration) {
+		try {
+			while(true) {
+				synchronized(idleLock) {
+					while(pendingRenders.get()>0 && preRenderGeneration.get()==myGeneration)
+						idleLock.wait();
+				}
+				if(preRenderGeneration.get()!=myGeneration)
+					return false;
+				IdleGate gate = new IdleGate();
+				EventQueue.invokeLater(gate);
+				synchronized(idleLock) {
+					while(!gate.answered && preRenderGeneration.get()==myGeneration)
+						idleLock.wait();
 				}
-				image.getRaster().setDataElements(0, y, size, 1, row);
+				if(preRenderGeneration.get()!=myGeneration)
+					return false;
+				if(gate.idle)
+					return true;
+			}
+		} catch(InterruptedException e) {
+			return false;
+		}
+	}
+
+	/** Runs on the event dispatch thread, and tells the pre-renderer whether it may render. */
+	private static class IdleGate implements Runnable {
+		boolean answered = false;
+		boolean idle = false;
+
+		public void run() {
+			EventQueue queue = Toolkit.getDefaultToolkit().getSystemEventQueue();
+			if(queue.peekEvent()!=null) {
+				//let the events queued ahead of us go first, and then ask again:
+				EventQueue.invokeLater(this);
+				return;
 			}
+			synchronized(idleLock) {
+				answered = true;
+				idle = pendingRenders.get()==0;
+				idleLock.notifyAll();
+			}
+		}
+	}
+
+	/** @return the key that identifies the graphic for the given mode and color in the <code>RenderCache</code>. */
+	private RenderCache.Key createKey(int mode,int size,float hue,float sat,float bri,int red,int green,int blue) {
+		int value;
+		if(mode==ColorPicker.BRI) {
+			value = Float.floatToIntBits(bri);
+		} else if(mode==ColorPicker.SAT) {
+			value = Float.floatToIntBits(sat);
+		} else if(mode==ColorPicker.HUE) {
+			value = Float.floatToIntBits(hue);
+		} else if(mode==ColorPicker.RED) {
+			value = red;
+		} else if(mode==ColorPicker.GREEN) {
+			value = green;
+		} else {
+			value = blue;
+		}
+		return new RenderCache.Key(mode, size, colorPicker.bpp, value);
+	}
+
+	/** @return the kernel that renders the given mode and color at the given size and depth. */
+	static RenderKernel createKernel(Quantizer quantizer,int mode,int size,float hue,float sat,float bri,int red,int green,int blue) {
+		if(mode==ColorPicker.BRI) {
+			return new RenderKernel.Bri(quantizer, WheelGeometry.get(size), bri);
+		} else if(mode==ColorPicker.SAT) {
+			return new RenderKernel.Sat(quantizer, WheelGeometry.get(size), sat);
+		} else if(mode==ColorPicker.HUE) {
+			return new RenderKernel.Hue(quantizer, size, hue);
+		} else if(mode==ColorPicker.RED) {
+			return new RenderKernel.Red(quantizer, size, red);
+		} else if(mode==ColorPicker.GREEN) {
+			return new RenderKernel.Green(quantizer, size, green);
+		} else {
+			return new RenderKernel.Blue(quantizer, size, blue);
 		}
-		repaint();
 	}
 }
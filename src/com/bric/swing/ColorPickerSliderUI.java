@@ -13,6 +13,7 @@
 
 package com.bric.swing;
 
+import java.util.*;
 import java.awt.event.*;
 import com.bric.awt.*;
 
@@ -36,27 +37,41 @@ class ColorPickerSliderUI extends BasicSliderUI {
 	/** Half of the height of the arrow */
 	int ARROW_HALF = 8;
 	
-	int[] intArray = new int[ Toolkit.getDefaultToolkit().getScreenSize().height ];
-	BufferedImage bi = new BufferedImage(1,intArray.length,BufferedImage.TYPE_INT_RGB);
-	int lastMode = -1;
-
 	ColorPickerSliderUI(JSlider b,ColorPicker cp) {
 		super(b);
 		colorPicker = cp;
+		resizeTimer.setRepeats(false);
 		cp.getColorPanel().addComponentListener(new ComponentAdapter() {
 			public void componentResized(ComponentEvent e) {
-				ColorPickerSliderUI.this.calculateGeometry();
-				slider.repaint();
+				resizeTimer.restart();
 			}
 		});
 	}
 
+	/** The track follows the size of the <code>ColorPickerPanel</code>.  While that
+	 * is being resized this waits for the size to settle, and then lays out the
+	 * track just once.
+	 */
+	javax.swing.Timer resizeTimer = new javax.swing.Timer(ColorPickerPanel.RESIZE_DELAY, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			calculateGeometry();
+			slider.repaint();
+		}
+	});
+
 	public void paintThumb(Graphics g) {
-		int y = thumbRect.y+thumbRect.height/2;
 		Polygon polygon = new Polygon();
-		polygon.addPoint(0,y-ARROW_HALF);
-		polygon.addPoint(ARROW_HALF,y);
-		polygon.addPoint(0,y+ARROW_HALF);
+		if(slider.getOrientation()==JSlider.HORIZONTAL) {
+			int x = thumbRect.x+thumbRect.width/2;
+			polygon.addPoint(x-ARROW_HALF,0);
+			polygon.addPoint(x,ARROW_HALF);
+			polygon.addPoint(x+ARROW_HALF,0);
+		} else {
+			int y = thumbRect.y+thumbRect.height/2;
+			polygon.addPoint(0,y-ARROW_HALF);
+			polygon.addPoint(ARROW_HALF,y);
+			polygon.addPoint(0,y+ARROW_HALF);
+		}
 		
 		Graphics2D g2 = (Graphics2D)g;
 		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
@@ -68,77 +83,231 @@ class ColorPickerSliderUI extends BasicSliderUI {
 
 	protected void calculateThumbSize() {
 		super.calculateThumbSize();
-		thumbRect.height+=4;
-		thumbRect.y-=2;
+		if(slider.getOrientation()==JSlider.HORIZONTAL) {
+			thumbRect.width+=4;
+			thumbRect.x-=2;
+		} else {
+			thumbRect.height+=4;
+			thumbRect.y-=2;
+		}
 	}
 
 	protected void calculateTrackRect() {
 		super.calculateTrackRect();
 		ColorPickerPanel cp = colorPicker.getColorPanel();
-		int size = Math.min(ColorPickerPanel.MAX_SIZE, Math.min(cp.getWidth(), cp.getHeight()));
-		int max = slider.getHeight()-ARROW_HALF*2-2;
-		if(size>max) {
-			size = max;
+		int size = Math.min(cp.getWidth(), cp.getHeight());
+		if(slider.getOrientation()==JSlider.HORIZONTAL) {
+			int max = slider.getWidth()-ARROW_HALF*2-2;
+			if(size>max) {
+				size = max;
+			}
+			trackRect.x = slider.getWidth()/2-size/2;
+			trackRect.width = size;
+		} else {
+			int max = slider.getHeight()-ARROW_HALF*2-2;
+			if(size>max) {
+				size = max;
+			}
+			trackRect.y = slider.getHeight()/2-size/2;
+			trackRect.height = size;
 		}
-		trackRect.y = slider.getHeight()/2-size/2;
-		trackRect.height = size;
 	}
 
-	public synchronized void paintTrack(Graphics g) {
+	public void paintTrack(Graphics g) {
+		boolean horizontal = slider.getOrientation()==JSlider.HORIZONTAL;
+		Rectangle r;
+		if(horizontal) {
+			r = new Rectangle(trackRect.x, 6, trackRect.width, 14);
+		} else {
+			r = new Rectangle(6, trackRect.y, 14, trackRect.height);
+		}
+		Graphics2D g2 = (Graphics2D)g;
+		if(slider.hasFocus()) {
+			PaintUtils.paintFocus(g2,r,3);
+		}
+		
+		if(r.width>0 && r.height>0)
+			g2.drawImage(getStrip(r.width, r.height, horizontal), r.x, r.y, null);
+		
+		PaintUtils.drawBevel(g2, r);
+	}
+
+	/** The number of strips each slider remembers.  This covers switching
+	 * back and forth between a few modes or colors.
+	 */
+	private static final int STRIP_CACHE_SIZE = 8;
+
+	/** Identifies the colors of one strip.  The colors along the track
+	 * only depend on the mode, the two values the slider doesn't control,
+	 * the length of the track, and the depth.
+	 */
+	static final class StripKey {
+		final int mode, a, b, width, height;
+		final Quantizer quantizer;
+
+		/** @param mode the mode of the <code>ColorPicker</code>.
+		 * @param a the first of the values this mode doesn't control.  For HSB values this
+		 * is the result of <code>Float.floatToIntBits()</code>.
+		 * @param b the second of the values this mode doesn't control.
+		 */
+		StripKey(int mode,int a,int b,int width,int height,Quantizer quantizer) {
+			this.mode = mode;
+			this.a = a;
+			this.b = b;
+			this.width = width;
+			this.height = height;
+			this.quantizer = quantizer;
+		}
+
+		public int hashCode() {
+			return (((mode*31+a)*31+b)*31+width)*31+height;
+		}
+
+		public boolean equals(Object obj) {
+			if(!(obj instanceof StripKey))
+				return false;
+			StripKey k = (StripKey)obj;
+			return k.mode==mode && k.a==a && k.b==b && k.width==width && k.height==height && k.quantizer==quantizer;
+		}
+	}
+
+	/** Recently painted strips, in opaque images compatible with the screen.
+	 * The least recently used strip is discarded first.
+	 */
+	private final LinkedHashMap<StripKey, BufferedImage> strips = 
+		new LinkedHashMap<StripKey, BufferedImage>(STRIP_CACHE_SIZE, .75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			protected boolean removeEldestEntry(Map.Entry<StripKey, BufferedImage> eldest) {
+				return size()>STRIP_CACHE_SIZE;
+			}
+		};
+
+	/** The screen the strips are compatible with. */
+	private GraphicsConfiguration stripConfiguration;
+
+	/** @return the key for the strip showing the current color. */
+	StripKey createStripKey(int width,int height) {
 		int mode = colorPicker.getMode();
-		if(mode==ColorPicker.HUE || mode==ColorPicker.BRI || mode==ColorPicker.SAT) {
+		int a = 0, b = 0;
+		if(mode==ColorPicker.SAT || mode==ColorPicker.BRI) {
 			float[] hsb = colorPicker.getHSB();
+			a = Float.floatToIntBits(hsb[0]);
+			b = Float.floatToIntBits(mode==ColorPicker.SAT ? hsb[2] : hsb[1]);
+		} else if(mode!=ColorPicker.HUE) {
+			int[] rgb = colorPicker.getScaledRGB();
+			if(mode==ColorPicker.RED) {
+				a = rgb[1];
+				b = rgb[2];
+			} else if(mode==ColorPicker.GREEN) {
+				a = rgb[0];
+				b = rgb[2];
+			} else {
+				a = rgb[0];
+				b = rgb[1];
+			}
+		}
+		return new StripKey(mode, a, b, width, height, colorPicker.quantizer);
+	}
+
+	/** @return the image of the track for the current color.  This is only
+	 * computed when no recent strip matches.
+	 */
+	private synchronized BufferedImage getStrip(int width,int height,boolean horizontal) {
+		GraphicsConfiguration gc = slider.getGraphicsConfiguration();
+		if(gc!=stripConfiguration) {
+			strips.clear();
+			stripConfiguration = gc;
+		}
+		StripKey key = createStripKey(width, height);
+		BufferedImage strip = strips.get(key);
+		if(strip==null) {
+			strip = createStrip(key, horizontal);
+			strips.put(key, strip);
+		}
+		return strip;
+	}
+
+	/** Renders a strip.
+	 * <P>The colors are calculated from the top of a vertical track down,
+	 * which is from the right of a horizontal track to the left.
+	 */
+	BufferedImage createStrip(StripKey key,boolean horizontal) {
+		int length = horizontal ? key.width : key.height;
+		int[] colors = new int[length];
+		int mode = key.mode;
+		if(mode==ColorPicker.HUE || mode==ColorPicker.BRI || mode==ColorPicker.SAT) {
 			if(mode==ColorPicker.HUE) {
-				for(int y = 0; y<trackRect.height; y++) {
-					float hue = ((float)y)/((float)(trackRect.height-1));
-					intArray[y] = Color.HSBtoRGB( hue, 1, 1);
-				}
-			} else if(mode==ColorPicker.SAT) {
-				for(int y = 0; y<trackRect.height; y++) {
-					float sat = 1-((float)y)/((float)(trackRect.height-1));
-					intArray[y] = Color.HSBtoRGB( hsb[0], sat, hsb[2]);
+				for(int y = 0; y<length; y++) {
+					float hue = ((float)y)/((float)(length-1));
+					colors[y] = ColorConversion.HSBtoRGB( hue, 1, 1);
 				}
 			} else {
-				for(int y = 0; y<trackRect.height; y++) {
-					float bri = 1-((float)y)/((float)(trackRect.height-1));
-					intArray[y] = Color.HSBtoRGB( hsb[0], hsb[1], bri);
+				float[] floatArray = new float[length];
+				for(int y = 0; y<length; y++) {
+					floatArray[y] = 1-((float)y)/((float)(length-1));
+				}
+				float hue = Float.intBitsToFloat(key.a);
+				float other = Float.intBitsToFloat(key.b);
+				if(mode==ColorPicker.SAT) {
+					ColorConversion.HSBtoRGB( hue, floatArray, other, colors, 0, length);
+				} else {
+					ColorConversion.HSBtoRGB( hue, other, floatArray, colors, 0, length);
 				}
 			}
+			key.quantizer.quantizeRGB(colors, 0, length);
 		} else {
-			int[] rgb = colorPicker.getScaledRGB();
-			int H = trackRect.height;
+			/* Only a few distinct colors appear at low depths: so only
+			 * compute a color when the quantized channel changes, and repeat
+			 * it down the rest of its run.
+			 */
+			Quantizer quantizer = key.quantizer;
+			int[] table;
+			int shift;
+			int others;
 			if(mode==ColorPicker.RED) {
-				for(int y = 0; y<H; y++) {
-					int red = 255-(y*256/H);
-					intArray[y] = (red << 16)+(rgb[1] << 8)+(rgb[2]);
-				}
+				table = quantizer.red;
+				shift = 16;
+				others = (key.a << 8)+key.b;
 			} else if(mode==ColorPicker.GREEN) {
-				for(int y = 0; y<H; y++) {
-					int green = 255-(y*256/H);
-					intArray[y] = (rgb[0] << 16)+(green << 8)+(rgb[2]);
-				}
-			} else if(mode==ColorPicker.BLUE) {
-				for(int y = 0; y<H; y++) {
-					int blue = 255-(y*256/H);
-					intArray[y] = (rgb[0] << 16)+(rgb[1] << 8)+(blue);
+				table = quantizer.green;
+				shift = 8;
+				others = (key.a << 16)+key.b;
+			} else {
+				table = quantizer.blue;
+				shift = 0;
+				others = (key.a << 16)+(key.b << 8);
+			}
+			others = quantizer.quantizeRGB(others);
+			int last = -1;
+			for(int y = 0; y<length; y++) {
+				int v = table[255-(y*256/length)];
+				if(v!=last) {
+					last = v;
+					colors[y] = others | (v << shift);
+				} else {
+					colors[y] = colors[y-1];
 				}
 			}
 		}
-		for(int y = 0; y<trackRect.height; y++) {
-			intArray[y] = colorPicker.quantizeRGB(intArray[y]);
-		}
-		Graphics2D g2 = (Graphics2D)g;
-		Rectangle r = new Rectangle(6, trackRect.y, 14, trackRect.height);
-		if(slider.hasFocus()) {
-			PaintUtils.paintFocus(g2,r,3);
+
+		int[] pixels = new int[key.width*key.height];
+		if(horizontal) {
+			for(int x = 0; x<length; x++) {
+				pixels[x] = colors[length-1-x];
+			}
+			for(int y = 1; y<key.height; y++) {
+				System.arraycopy(pixels, 0, pixels, y*length, length);
+			}
+		} else {
+			for(int y = 0; y<length; y++) {
+				Arrays.fill(pixels, y*key.width, (y+1)*key.width, colors[y]);
+			}
 		}
-		
-		bi.getRaster().setDataElements(0,0,1,trackRect.height,intArray);
-		TexturePaint p = new TexturePaint(bi,new Rectangle(0,trackRect.y,1,bi.getHeight()));
-		g2.setPaint(p);
-		g2.fillRect(r.x,r.y,r.width,r.height);
-		
-		PaintUtils.drawBevel(g2, r);
+		BufferedImage strip = PaintUtils.createCompatibleImage(slider, key.width, key.height, Transparency.OPAQUE);
+		//setRGB() converts to whatever format the screen uses:
+		strip.setRGB(0, 0, key.width, key.height, pixels, 0, key.width);
+		return strip;
 	}
 	
 	public void paintFocus(Graphics g) {}
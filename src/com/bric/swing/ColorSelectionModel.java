@@ -0,0 +1,204 @@
+/*
+* @(#)ColorSelectionModel.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.util.*;
+import javax.swing.event.*;
+import com.bric.awt.*;
+
+/** The color a <code>ColorPicker</code> has selected.
+ * <P>The spinners, the hex field, the slider, the preview and the
+ * <code>ColorPickerPanel</code> are all views of this one model.  When the
+ * color changes its RGB and HSB forms are worked out here once, and then each
+ * <code>ChangeListener</code> is notified once.  <code>getChanges()</code> tells
+ * the listeners which parts of the color changed, so views that show
+ * something else can skip the update.
+ * <P>Several changes can be made as one transaction by surrounding them with
+ * <code>beginUpdate()</code> and <code>endUpdate()</code>.  Then listeners are
+ * only notified when the outermost transaction ends, and only if something
+ * actually changed.
+ * <P>This is only changed on the event dispatch thread, but <code>getSnapshot()</code>
+ * can be called from any thread.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+class ColorSelectionModel {
+
+	/** A flag for <code>getChanges()</code>: the red, green or blue value changed. */
+	static final int RGB_CHANGED = 1;
+	/** A flag for <code>getChanges()</code>: the hue, saturation or brightness changed. */
+	static final int HSB_CHANGED = 2;
+	/** A flag for <code>getChanges()</code>: the alpha changed. */
+	static final int ALPHA_CHANGED = 4;
+
+	private final Quantizer quantizer;
+
+	/** The quantized RGB values.  Each is between [0,255]. */
+	private int red, green, blue;
+	/** The HSB values.  Each is between [0,1]. */
+	private float hue, sat, bri;
+	private int alpha = 255;
+
+	/** The color as of the last change delivered to the listeners. */
+	private volatile ColorSnapshot snapshot = new ColorSnapshot(0xff000000, 0, 0, 0);
+
+	/** How many transactions are open. */
+	private int depth = 0;
+	/** The changes not yet delivered to the listeners. */
+	private int pendingChanges = 0;
+	/** The changes being delivered to the listeners. */
+	private int changes = 0;
+
+	private final List<ChangeListener> listeners = new ArrayList<ChangeListener>();
+	private final ChangeEvent changeEvent = new ChangeEvent(this);
+
+	ColorSelectionModel(Quantizer quantizer) {
+		this.quantizer = quantizer;
+	}
+
+	void addChangeListener(ChangeListener l) {
+		if(listeners.contains(l))
+			return;
+		listeners.add(l);
+	}
+
+	void removeChangeListener(ChangeListener l) {
+		listeners.remove(l);
+	}
+
+	/** Starts a transaction.  Listeners are not notified of any changes
+	 * until the matching call to <code>endUpdate()</code>.
+	 */
+	void beginUpdate() {
+		depth++;
+	}
+
+	/** Ends a transaction.  If this is the outermost transaction and
+	 * anything changed, the listeners are notified once.
+	 */
+	void endUpdate() {
+		if(depth==0)
+			throw new IllegalStateException("endUpdate() was called without beginUpdate()");
+		depth--;
+		fireChangeListeners();
+	}
+
+	/** @return which parts of the color changed, while the listeners are being notified.
+	 * This is a combination of <code>RGB_CHANGED</code>, <code>HSB_CHANGED</code> and
+	 * <code>ALPHA_CHANGED</code>.
+	 */
+	int getChanges() {
+		return changes;
+	}
+
+	/** Selects a color by its RGB values.  The values are quantized to the depth,
+	 * and the HSB values are derived from the result.
+	 *
+	 * @param r the red value, between [0,255].
+	 * @param g the green value, between [0,255].
+	 * @param b the blue value, between [0,255].
+	 */
+	void setRGB(int r,int g,int b) {
+		r = quantizer.red[r];
+		g = quantizer.green[g];
+		b = quantizer.blue[b];
+		if(r==red && g==green && b==blue)
+			return;
+		red = r;
+		green = g;
+		blue = b;
+		pendingChanges |= RGB_CHANGED;
+		float[] hsb = ColorConversion.RGBtoHSB(r, g, b, null);
+		if(hsb[0]!=hue || hsb[1]!=sat || hsb[2]!=bri) {
+			hue = hsb[0];
+			sat = hsb[1];
+			bri = hsb[2];
+			pendingChanges |= HSB_CHANGED;
+		}
+		fireChangeListeners();
+	}
+
+	/** Selects a color by its HSB values.  These are kept exactly as they are,
+	 * and the RGB values are derived from them and quantized to the depth.
+	 *
+	 * @param h the hue, between [0,1].
+	 * @param s the saturation, between [0,1].
+	 * @param b the brightness, between [0,1].
+	 */
+	void setHSB(float h,float s,float b) {
+		if(h==hue && s==sat && b==bri)
+			return;
+		hue = h;
+		sat = s;
+		bri = b;
+		pendingChanges |= HSB_CHANGED;
+		int rgb = quantizer.quantizeRGB(ColorConversion.HSBtoRGB(h, s, b));
+		int r = (rgb >> 16) & 0xff;
+		int g = (rgb >> 8) & 0xff;
+		int bl = rgb & 0xff;
+		if(r!=red || g!=green || bl!=blue) {
+			red = r;
+			green = g;
+			blue = bl;
+			pendingChanges |= RGB_CHANGED;
+		}
+		fireChangeListeners();
+	}
+
+	/** @param a the alpha, between [0,255]. */
+	void setAlpha(int a) {
+		if(a==alpha)
+			return;
+		alpha = a;
+		pendingChanges |= ALPHA_CHANGED;
+		fireChangeListeners();
+	}
+
+	int getRed() { return red; }
+	int getGreen() { return green; }
+	int getBlue() { return blue; }
+	int getAlpha() { return alpha; }
+	float getHue() { return hue; }
+	float getSaturation() { return sat; }
+	float getBrightness() { return bri; }
+
+	/** Returns the color as of the last change delivered to the listeners.
+	 * <P>A new snapshot is published, with a single volatile write, when a change
+	 * or a transaction is complete and before any listener is notified.  So this
+	 * never shows part of a change, and it can be called from any thread without
+	 * locking.
+	 */
+	ColorSnapshot getSnapshot() {
+		return snapshot;
+	}
+
+	private void fireChangeListeners() {
+		if(depth>0 || pendingChanges==0)
+			return;
+		int lastChanges = changes;
+		changes = pendingChanges;
+		pendingChanges = 0;
+		snapshot = new ColorSnapshot((alpha << 24) | (red << 16) | (green << 8) | blue, hue, sat, bri);
+		try {
+			for(int a = 0; a<listeners.size(); a++) {
+				ChangeListener l = listeners.get(a);
+				try {
+					l.stateChanged(changeEvent);
+				} catch(RuntimeException e) {
+					e.printStackTrace();
+				}
+			}
+		} finally {
+			changes = lastChanges;
+		}
+	}
+}
@@ -0,0 +1,94 @@
+/*
+* @(#)ColorSnapshot.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.awt.*;
+
+/** The color a <code>ColorPicker</code> had selected at one moment.
+ * <P>This is immutable, so it can be passed to and read from any thread.
+ * The color is kept both as one packed ARGB int and as the exact HSB
+ * values the picker used, so neither has to be converted from the other.
+ *
+ * @see ColorPicker#getSnapshot()
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public final class ColorSnapshot {
+	private final int argb;
+	private final float hue, saturation, brightness;
+
+	ColorSnapshot(int argb,float hue,float saturation,float brightness) {
+		this.argb = argb;
+		this.hue = hue;
+		this.saturation = saturation;
+		this.brightness = brightness;
+	}
+
+	/** @return the color as an ARGB int, like <code>Color.getRGB()</code>. */
+	public int getARGB() {
+		return argb;
+	}
+
+	/** @return the red value, between [0,255]. */
+	public int getRed() {
+		return (argb >> 16) & 0xff;
+	}
+
+	/** @return the green value, between [0,255]. */
+	public int getGreen() {
+		return (argb >> 8) & 0xff;
+	}
+
+	/** @return the blue value, between [0,255]. */
+	public int getBlue() {
+		return argb & 0xff;
+	}
+
+	/** @return the alpha, between [0,255]. */
+	public int getAlpha() {
+		return argb >>> 24;
+	}
+
+	/** @return the hue, between [0,1]. */
+	public float getHue() {
+		return hue;
+	}
+
+	/** @return the saturation, between [0,1]. */
+	public float getSaturation() {
+		return saturation;
+	}
+
+	/** @return the brightness, between [0,1]. */
+	public float getBrightness() {
+		return brightness;
+	}
+
+	/** @return a new <code>Color</code> with this color and alpha. */
+	public Color toColor() {
+		return new Color(argb, true);
+	}
+
+	public boolean equals(Object obj) {
+		if(!(obj instanceof ColorSnapshot))
+			return false;
+		ColorSnapshot s = (ColorSnapshot)obj;
+		return s.argb==argb && s.hue==hue && s.saturation==saturation && s.brightness==brightness;
+	}
+
+	public int hashCode() {
+		return ((argb*31+Float.floatToIntBits(hue))*31+Float.floatToIntBits(saturation))*31+Float.floatToIntBits(brightness);
+	}
+
+	public String toString() {
+		return "ColorSnapshot[ argb=0x"+Integer.toHexString(argb)+", hsb=("+hue+", "+saturation+", "+brightness+") ]";
+	}
+}
@@ -104,20 +104,47 @@ public class IndexedColorPickerPanel extends JPanel {
 		public void focusLost(FocusEvent e) { repaint(); }
 	};
 
+	/** How long, in milliseconds, the size must hold still before the image
+	 * is regenerated at the new size.
+	 */
+	static final int RESIZE_DELAY = 100;
+
+	/** While the component is being resized this paints a scaled copy of the
+	 * last image, and regenerates it just once after the size settles.
+	 */
+	javax.swing.Timer resizeTimer = new javax.swing.Timer(RESIZE_DELAY, new ActionListener() {
+		public void actionPerformed(ActionEvent e) {
+			regenerateImage();
+		}
+	});
+
 	ComponentListener componentListener = new ComponentAdapter() {
 		public void componentResized(ComponentEvent e) {
-			regenerateImage();
-			repaint();
+			sizeToFit();
+			if(imageWidth==0) {
+				regenerateImage();
+			} else {
+				resizeTimer.restart();
+				repaint();
+			}
 		}
 	};
 
-	BufferedImage image = new BufferedImage(MAX_SIZE, MAX_SIZE, BufferedImage.TYPE_INT_ARGB);
+	/** The cells, in an image compatible with the screen.  This is only opaque
+	 * if every color is.
+	 */
+	BufferedImage image;
+	/** The part of <code>image</code> that was filled in the last time it was regenerated. */
+	private int imageWidth, imageHeight;
+	/** The screen <code>image</code> is compatible with. */
+	private GraphicsConfiguration imageConfiguration;
 	IndexedColorPicker colorPicker;
 
 	/** Creates a new <code>IndexedColorPickerPanel</code> */
 	public IndexedColorPickerPanel(IndexedColorPicker cp) {
 		colorPicker = cp;
 		colors = colorPicker.getColors();
+		resizeTimer.setRepeats(false);
 
 		int n = colors.length;
 
@@ -192,6 +219,11 @@ public class IndexedColorPickerPanel extends JPanel {
 
 		Graphics2D g2 = (Graphics2D)g;
 
+		if(imageWidth!=0 && imageConfiguration!=getGraphicsConfiguration()) {
+			//this moved to a different screen
+			regenerateImage();
+		}
+
 		g2.translate(getWidth()/2-width/2, getHeight()/2-height/2);
 		g2.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
 
@@ -200,7 +232,10 @@ public class IndexedColorPickerPanel extends JPanel {
 		if(hasFocus())
 			PaintUtils.paintFocus(g2,shape,5);
 
-		g2.drawImage(image, 0, 0, width, height, 0, 0, width, height, null);
+		if(imageWidth!=width || imageHeight!=height)
+			g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+		if(image!=null)
+			g2.drawImage(image, 0, 0, width, height, 0, 0, imageWidth, imageHeight, null);
 
 		PaintUtils.drawBevel(g2, shape);
 
@@ -233,13 +268,32 @@ public class IndexedColorPickerPanel extends JPanel {
 
 	/** Regenerates the image. */
 	private synchronized void regenerateImage() {
+		resizeTimer.stop();
 		sizeToFit();
+		imageWidth = width;
+		imageHeight = height;
+		if(width<=0 || height<=0)
+			return;
+
+		boolean opaque = true;
+		for(int a = 0; a<colors.length; a++) {
+			if(colors[a].getAlpha()!=255)
+				opaque = false;
+		}
+		int transparency = opaque ? Transparency.OPAQUE : Transparency.TRANSLUCENT;
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if(image==null || image.getWidth()<width || image.getHeight()<height ||
+				image.getTransparency()!=transparency || imageConfiguration!=gc) {
+			image = PaintUtils.createCompatibleImage(this, width, height, transparency);
+			imageConfiguration = gc;
+		}
 
 		for (int r = 0; r < rows; r++) {
 			for (int x = 0; x<width; x++)
 				row[x] = colors[r*cols+x/cellSize].getRGB();
 			for(int y = 0; y<cellSize; y++) {
-				image.getRaster().setDataElements(0, r*cellSize+y, width, 1, row);
+				//setRGB() converts to whatever format the screen uses:
+				image.setRGB(0, r*cellSize+y, width, 1, row, 0, width);
 			}
 		}
 		repaint();
@@ -0,0 +1,94 @@
+/*
+* @(#)Quantizer.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.util.*;
+
+/** Rounds colors down to the nearest color a <code>ColorPicker</code>'s
+ * depth can represent.
+ * <P>Each channel is looked up in a table of 256 entries, built once for
+ * each depth and shared by every <code>ColorPicker</code> with that depth.
+ * At 8 bits per channel quantizing changes nothing, so every
+ * method returns right away.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+class Quantizer {
+
+	private static final Map<Integer, Quantizer> quantizers = new HashMap<Integer, Quantizer>();
+
+	/** Returns the <code>Quantizer</code> for a depth.
+	 *
+	 * @param bpp the bits per channel of the red, green, and blue channels.
+	 */
+	static Quantizer get(int[] bpp) {
+		Integer key = Integer.valueOf((bpp[0] << 8) | (bpp[1] << 4) | bpp[2]);
+		synchronized(quantizers) {
+			Quantizer q = quantizers.get(key);
+			if(q==null) {
+				q = new Quantizer(bpp);
+				quantizers.put(key, q);
+			}
+			return q;
+		}
+	}
+
+	/** Whether this depth is 8 bits per channel, so quantizing does nothing. */
+	final boolean identity;
+
+	/** The quantized value of each channel value from [0,255]. */
+	final int[] red, green, blue;
+
+	/** The same as <code>red</code> and <code>green</code>, but already shifted
+	 * into place in an ARGB int.
+	 */
+	private final int[] redBits, greenBits;
+
+	private Quantizer(int[] bpp) {
+		identity = bpp[0]==8 && bpp[1]==8 && bpp[2]==8;
+		red = createTable(bpp[0]);
+		green = createTable(bpp[1]);
+		blue = createTable(bpp[2]);
+		redBits = new int[256];
+		greenBits = new int[256];
+		for(int v = 0; v<256; v++) {
+			redBits[v] = red[v] << 16;
+			greenBits[v] = green[v] << 8;
+		}
+	}
+
+	private static int[] createTable(int bpp) {
+		int[] table = new int[256];
+		int multiplier = ColorPicker.MULTIPLIERS[bpp];
+		for(int v = 0; v<256; v++) {
+			table[v] = ((v >> (8-bpp)) * multiplier) >> 8;
+		}
+		return table;
+	}
+
+	/** Quantizes an ARGB color.  The alpha is unchanged. */
+	int quantizeRGB(int v) {
+		if(identity)
+			return v;
+		return (v & 0xff000000) | redBits[(v >> 16) & 0xff] | greenBits[(v >> 8) & 0xff] | blue[v & 0xff];
+	}
+
+	/** Quantizes an array of ARGB colors in place.  The alpha is unchanged. */
+	void quantizeRGB(int[] pixels,int offset,int length) {
+		if(identity)
+			return;
+		for(int i = offset; i<offset+length; i++) {
+			int v = pixels[i];
+			pixels[i] = (v & 0xff000000) | redBits[(v >> 16) & 0xff] | greenBits[(v >> 8) & 0xff] | blue[v & 0xff];
+		}
+	}
+}
@@ -0,0 +1,560 @@
+/*
+* @(#)RenderCache.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.*;
+
+/** The graphics every <code>ColorPickerPanel</code> has rendered recently.
+ * <P>The graphic only depends on the mode, the value that mode holds
+ * constant, the size, and the color depth: so when one panel (or another
+ * panel showing the same color) needs it again it is copied from here
+ * instead of rendered again.
+ * <P>The least recently used graphics are discarded when the cache
+ * outgrows its capacity.  Unless a capacity is set, it grows with the
+ * largest graphic seen, so a large panel on a HiDPI screen can still keep
+ * several graphics (such as the ones pre-rendered along the slider).
+ * <P>The cache can also be kept in a file between sessions: see
+ * <code>setPersistentFile()</code>.  Then a new JVM maps that file into
+ * memory, and the first time it paints a graphic it rendered before, the
+ * pixels are copied straight from the file.  Only graphics a panel showed at
+ * full quality are saved: the reduced graphics shown during a drag, and
+ * graphics pre-rendered for values the user never chose, are not.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class RenderCache {
+
+	/** The least the default capacity can be, in bytes. */
+	private static final long MIN_DEFAULT_CAPACITY = 16*1024*1024;
+
+	/** The default capacity holds at least this many of the largest graphic seen. */
+	private static final int DEFAULT_GRAPHICS = 8;
+
+	/** The default capacity is never more than this fraction of the maximum heap. */
+	private static final int HEAP_DIVISOR = 4;
+
+	/** The capacity passed to <code>setCapacity()</code>, or -1 to use the default. */
+	private static long fixedCapacity = -1;
+
+	/** The number of bytes in the largest graphic offered to this cache. */
+	private static long largestGraphic = 0;
+
+	private static long bytes = 0;
+	private static long hits = 0, misses = 0;
+
+	private static final LinkedHashMap<Key, int[]> pixels = new LinkedHashMap<Key, int[]>(16, .75f, true);
+
+	/** The graphics in <code>pixels</code> that are not saved to the persistent file. */
+	private static final Set<Key> transientKeys = new HashSet<Key>();
+
+	/** The first 4 bytes of a persistent cache file. */
+	private static final int MAGIC = 0x42524343;
+
+	/** The size of the header of a persistent cache file, before its index. */
+	private static final int HEADER_SIZE = 16;
+
+	/** The version of the persistent cache file format.  This must be incremented
+	 * whenever the format changes; a file with a different version is ignored.
+	 * <P>Changes to the graphics themselves don't need a new version: they change
+	 * the fingerprint instead.
+	 * @see #getFingerprint()
+	 */
+	private static final int VERSION = 2;
+
+	/** The size of the probe graphics the fingerprint is calculated from. */
+	private static final int PROBE_SIZE = 19;
+
+	/** The depths the fingerprint's probe graphics are rendered at. */
+	private static final int[][] PROBE_DEPTHS = new int[][] { {8, 8, 8}, {5, 6, 5} };
+
+	/** The fingerprint of the kernels, or 0 if it hasn't been calculated yet. */
+	private static int fingerprint = 0;
+
+	/** The file graphics are loaded from and saved to, or <code>null</code>. */
+	private static File persistentFile;
+
+	/** The contents of <code>persistentFile</code>, mapped into memory. */
+	private static MappedByteBuffer mapped;
+
+	/** Where each graphic in <code>mapped</code> is. */
+	private static final Map<Key, Entry> mappedEntries = new HashMap<Key, Entry>();
+
+	/** Whether this cache has changed since <code>persistentFile</code> was read or written. */
+	private static boolean dirty = false;
+
+	private static boolean shutdownHookInstalled = false;
+
+	/** One graphic in the persistent file. */
+	private static final class Entry {
+		final int offset, length;
+		final long checksum;
+
+		Entry(int offset,int length,long checksum) {
+			this.offset = offset;
+			this.length = length;
+			this.checksum = checksum;
+		}
+	}
+
+	/** Identifies one graphic. */
+	static final class Key {
+		final int mode, size, depth, value;
+
+		/** @param mode the mode of the panel.
+		 * @param size the width and height of the graphic.
+		 * @param bpp the bits per channel of the red, green, and blue channels.
+		 * @param value the bits of the value the mode holds constant.  For HUE, SAT and BRI
+		 * mode this is the result of <code>Float.floatToIntBits()</code>.
+		 */
+		Key(int mode,int size,int[] bpp,int value) {
+			this(mode, size, (bpp[0] << 8) | (bpp[1] << 4) | bpp[2], value);
+		}
+
+		Key(int mode,int size,int depth,int value) {
+			this.mode = mode;
+			this.size = size;
+			this.depth = depth;
+			this.value = value;
+		}
+
+		public int hashCode() {
+			return ((mode*31+size)*31+depth)*31+value;
+		}
+
+		public boolean equals(Object obj) {
+			if(!(obj instanceof Key))
+				return false;
+			Key k = (Key)obj;
+			return k.mode==mode && k.size==size && k.depth==depth && k.value==value;
+		}
+	}
+
+	/** @return the pixels of a graphic, or <code>null</code> if it isn't cached.
+	 * The caller must not modify this array.
+	 */
+	static synchronized int[] get(Key key) {
+		int[] array = pixels.get(key);
+		if(array==null) {
+			array = readMapped(key);
+			if(array!=null && accept(array.length)) {
+				pixels.put(key, array);
+				bytes += 4L*array.length;
+				trim();
+			}
+		}
+		if(array==null) {
+			misses++;
+		} else {
+			hits++;
+		}
+		return array;
+	}
+
+	/** @return whether a graphic is cached.  Unlike <code>get()</code> this
+	 * doesn't count as a hit or a miss, or make the graphic recently used.
+	 */
+	static synchronized boolean contains(Key key) {
+		return pixels.containsKey(key) || mappedEntries.containsKey(key);
+	}
+
+	/** Stores a copy of the pixels of a graphic.
+	 * <P>A graphic larger than the capacity of the cache is not stored (or copied) at all.
+	 * 
+	 * @param persistent whether the graphic should be saved to the persistent file.
+	 */
+	static synchronized void put(Key key,int[] src,boolean persistent) {
+		if(!accept(src.length))
+			return;
+		store(key, src.clone(), persistent);
+	}
+
+	/** Stores the pixels of a graphic without copying them.  The caller must
+	 * not modify the array after this.
+	 * <P>This is for graphics rendered ahead of time, so they are not saved to
+	 * the persistent file unless <code>setPersistent()</code> is called later.
+	 * A graphic larger than the capacity of the cache is not stored at all.
+	 */
+	static synchronized void putOwned(Key key,int[] array) {
+		if(!accept(array.length))
+			return;
+		store(key, array, false);
+	}
+
+	/** Marks a cached graphic to be saved to the persistent file.  This does
+	 * nothing if the graphic isn't cached.
+	 */
+	static synchronized void setPersistent(Key key) {
+		if(transientKeys.remove(key))
+			dirty = true;
+	}
+
+	/** Notes the size of a graphic that is offered to this cache.
+	 * @return whether it fits in the capacity.  If not, it would be
+	 * discarded right away, so it shouldn't be copied or stored.
+	 */
+	private static boolean accept(int length) {
+		largestGraphic = Math.max(largestGraphic, 4L*length);
+		return 4L*length<=capacity();
+	}
+
+	private static void store(Key key,int[] array,boolean persistent) {
+		int[] old = pixels.put(key, array);
+		if(old!=null)
+			bytes -= 4L*old.length;
+		bytes += 4L*array.length;
+		if(persistent) {
+			transientKeys.remove(key);
+			dirty = true;
+		} else {
+			transientKeys.add(key);
+		}
+		trim();
+	}
+
+	private static void trim() {
+		long capacity = capacity();
+		Iterator<Map.Entry<Key, int[]>> i = pixels.entrySet().iterator();
+		while(bytes>capacity && i.hasNext()) {
+			Map.Entry<Key, int[]> entry = i.next();
+			bytes -= 4L*entry.getValue().length;
+			transientKeys.remove(entry.getKey());
+			i.remove();
+		}
+	}
+
+	/** @return the number of times a graphic was found in this cache. */
+	public static synchronized long getHitCount() {
+		return hits;
+	}
+
+	/** @return the number of times a graphic was not found in this cache,
+	 * and had to be rendered.
+	 */
+	public static synchronized long getMissCount() {
+		return misses;
+	}
+
+	/** @return the number of bytes of pixel data currently cached. */
+	public static synchronized long getSize() {
+		return bytes;
+	}
+
+	/** @return the maximum number of bytes of pixel data this cache will hold. */
+	public static synchronized long getCapacity() {
+		return capacity();
+	}
+
+	/** Sets the maximum number of bytes of pixel data this cache will hold.
+	 * Zero disables the cache.
+	 * <P>By default the capacity is enough for 8 of the largest graphic seen so far,
+	 * and at least 16 MB, but no more than a quarter of the maximum heap.
+	 * 
+	 * @param b the capacity in bytes, or -1 to go back to the default.
+	 */
+	public static synchronized void setCapacity(long b) {
+		if(b<-1)
+			throw new IllegalArgumentException("The capacity ("+b+") must be zero or more, or -1 for the default.");
+		fixedCapacity = b;
+		trim();
+	}
+
+	private static long capacity() {
+		if(fixedCapacity>=0)
+			return fixedCapacity;
+		long c = Math.min(DEFAULT_GRAPHICS*largestGraphic, Runtime.getRuntime().maxMemory()/HEAP_DIVISOR);
+		return Math.max(MIN_DEFAULT_CAPACITY, c);
+	}
+
+	/** Discards every cached graphic, and resets the hit and miss counts.
+	 * <P>This includes the graphics in the persistent file, if there is one:
+	 * the next time it is saved it will only contain graphics rendered after this.
+	 */
+	public static synchronized void clear() {
+		pixels.clear();
+		transientKeys.clear();
+		mappedEntries.clear();
+		bytes = 0;
+		hits = 0;
+		misses = 0;
+		dirty = true;
+	}
+
+	/** Keeps this cache in a file, so the graphics rendered in one session are
+	 * ready the first time they are painted in the next.
+	 * <P>This is off by default.  When a file is set, its graphics are mapped into
+	 * memory (not read: each is only copied out the first time it is needed).
+	 * The cache is saved back to the file when the JVM exits, or when <code>save()</code>
+	 * is called.
+	 * <P>If the file is missing, can't be read, was written by a different version of
+	 * this class, holds graphics rendered differently than they are now, or is corrupt,
+	 * it is ignored and the cache starts out empty.
+	 * 
+	 * @param file the file to use, or <code>null</code> to stop using a file.
+	 */
+	public static synchronized void setPersistentFile(File file) {
+		persistentFile = file;
+		mapped = null;
+		mappedEntries.clear();
+		//graphics rendered before this are still unsaved, so dirty is left as it is
+		if(file==null)
+			return;
+		if(!shutdownHookInstalled) {
+			Runtime.getRuntime().addShutdownHook(new Thread("RenderCache Saver") {
+				public void run() {
+					try {
+						save();
+					} catch(IOException e) {
+						//save() has already cleaned up, and the old file is intact: the next session just starts with it
+						Logger.getLogger(RenderCache.class.getName()).log(Level.WARNING,
+								"The render cache could not be saved to "+persistentFile, e);
+					}
+				}
+			});
+			shutdownHookInstalled = true;
+		}
+		File source = file;
+		File pending = getPendingFile(file);
+		if(pending.exists()) {
+			//a save couldn't replace the file last time: switch to the newer file now, before anything maps it
+			try {
+				Files.move(pending.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch(IOException e) {
+				source = pending;
+			}
+		}
+		try {
+			map(source);
+		} catch(IOException e) {
+			mapped = null;
+			mappedEntries.clear();
+		} catch(RuntimeException e) {
+			//a corrupt file can fail in many ways: treat them all like a missing file
+			mapped = null;
+			mappedEntries.clear();
+		}
+	}
+
+	/** @return the file this cache is kept in, or <code>null</code>.
+	 * @see #setPersistentFile(File)
+	 */
+	public static synchronized File getPersistentFile() {
+		return persistentFile;
+	}
+
+	/** @return where a save puts the new file if it can't replace the old one.
+	 * <P>On some platforms (such as Windows) a file can't be replaced while it is mapped
+	 * into memory, and a mapping is only released when it is garbage collected.
+	 */
+	private static File getPendingFile(File file) {
+		return new File(file.getPath()+".new");
+	}
+
+	/** Returns a checksum of what the kernels render.
+	 * <P>This renders a small graphic for every mode at a couple of depths, and
+	 * returns the CRC-32 of all their pixels.  It is saved in the persistent file,
+	 * and a file with a different fingerprint is ignored.  So a change to any kernel
+	 * that changes its output makes old files invalid, without anyone having to
+	 * remember to change <code>VERSION</code>.
+	 */
+	static synchronized int getFingerprint() {
+		if(fingerprint==0) {
+			CRC32 crc = new CRC32();
+			int[] data = new int[PROBE_SIZE*PROBE_SIZE];
+			ByteBuffer buffer = ByteBuffer.allocate(4*data.length);
+			int[] modes = new int[] { ColorPicker.HUE, ColorPicker.SAT, ColorPicker.BRI,
+					ColorPicker.RED, ColorPicker.GREEN, ColorPicker.BLUE };
+			for(int[] bpp : PROBE_DEPTHS) {
+				Quantizer quantizer = Quantizer.get(bpp);
+				for(int mode : modes) {
+					RenderKernel kernel = ColorPickerPanel.createKernel(quantizer, mode, PROBE_SIZE, 
+							.3f, .6f, .8f, 200, 100, 50);
+					kernel.render(data, 0, PROBE_SIZE, 0, PROBE_SIZE);
+					buffer.clear();
+					buffer.asIntBuffer().put(data);
+					crc.update(buffer);
+				}
+			}
+			//zero means "not calculated yet":
+			fingerprint = ((int)crc.getValue()) | 1;
+		}
+		return fingerprint;
+	}
+
+	/** Maps a persistent file into memory, and reads its index.
+	 * <P>The file starts with the magic number, the version, the fingerprint of the
+	 * kernels, and the number of graphics.
+	 * Then for each graphic it lists the 4 ints of its key, the offset and length
+	 * of its pixels, and the CRC-32 of those pixels.  The pixels follow.
+	 */
+	private static void map(File file) throws IOException {
+		if(!file.exists())
+			return;
+		FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+		try {
+			long size = channel.size();
+			if(size<HEADER_SIZE || size>Integer.MAX_VALUE)
+				return;
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+			if(buffer.getInt(0)!=MAGIC || buffer.getInt(4)!=VERSION || buffer.getInt(8)!=getFingerprint())
+				return;
+			int count = buffer.getInt(12);
+			if(count<0 || HEADER_SIZE+count*32L>size)
+				return;
+			Map<Key, Entry> entries = new HashMap<Key, Entry>();
+			for(int a = 0; a<count; a++) {
+				int i = HEADER_SIZE+a*32;
+				int mode = buffer.getInt(i);
+				int keySize = buffer.getInt(i+4);
+				int depth = buffer.getInt(i+8);
+				int value = buffer.getInt(i+12);
+				int offset = buffer.getInt(i+16);
+				int length = buffer.getInt(i+20);
+				long checksum = buffer.getLong(i+24);
+				if(keySize<=0 || offset<0 || length<0 || offset+4L*length>size || length!=((long)keySize)*keySize)
+					return;
+				entries.put(new Key(mode, keySize, depth, value), new Entry(offset, length, checksum));
+			}
+			mapped = buffer;
+			mappedEntries.putAll(entries);
+		} finally {
+			//the mapping stays valid after the channel is closed
+			channel.close();
+		}
+	}
+
+	/** @return a graphic copied from the persistent file, or <code>null</code>.
+	 * If the graphic is corrupt the whole file is ignored from now on.
+	 */
+	private static int[] readMapped(Key key) {
+		Entry e = mappedEntries.get(key);
+		if(e==null)
+			return null;
+		ByteBuffer data = mapped.duplicate();
+		data.limit(e.offset+4*e.length);
+		data.position(e.offset);
+		CRC32 crc = new CRC32();
+		crc.update(data.duplicate());
+		if(crc.getValue()!=e.checksum) {
+			mapped = null;
+			mappedEntries.clear();
+			return null;
+		}
+		int[] array = new int[e.length];
+		data.asIntBuffer().get(array);
+		return array;
+	}
+
+	/** Saves this cache to the persistent file, if there is one and the cache
+	 * changed.  This is called automatically when the JVM exits.
+	 * <P>The graphics in memory that panels showed at full quality are saved
+	 * first, and then any graphics in the
+	 * old file that weren't used this session, as long as they fit in the capacity.
+	 * The file is written to a temporary file first and then moved into place, so an
+	 * interrupted save can't corrupt it.
+	 * <P>If the old file can't be replaced, because it is still mapped into memory
+	 * on a platform that doesn't allow that, the new file is kept next to it.  It
+	 * replaces the old file the next time <code>setPersistentFile()</code> is called,
+	 * before that maps anything.
+	 * 
+	 * @throws IOException if the new file couldn't be written.  The old file is then left as it was.
+	 */
+	public static synchronized void save() throws IOException {
+		if(persistentFile==null || !dirty)
+			return;
+		List<Key> keys = new ArrayList<Key>();
+		List<ByteBuffer> data = new ArrayList<ByteBuffer>();
+		long total = 0;
+		for(Map.Entry<Key, int[]> entry : pixels.entrySet()) {
+			if(transientKeys.contains(entry.getKey()))
+				continue;
+			ByteBuffer b = ByteBuffer.allocate(4*entry.getValue().length);
+			b.asIntBuffer().put(entry.getValue());
+			keys.add(entry.getKey());
+			data.add(b);
+			total += b.capacity();
+		}
+		for(Map.Entry<Key, Entry> entry : mappedEntries.entrySet()) {
+			Entry e = entry.getValue();
+			if(pixels.containsKey(entry.getKey()) || total+4L*e.length>capacity())
+				continue;
+			ByteBuffer b = mapped.duplicate();
+			b.limit(e.offset+4*e.length);
+			b.position(e.offset);
+			keys.add(entry.getKey());
+			data.add(b.slice());
+			total += 4L*e.length;
+		}
+
+		int headerSize = HEADER_SIZE+32*keys.size();
+		ByteBuffer header = ByteBuffer.allocate(headerSize);
+		header.putInt(MAGIC);
+		header.putInt(VERSION);
+		header.putInt(getFingerprint());
+		header.putInt(keys.size());
+		long offset = headerSize;
+		for(int a = 0; a<keys.size(); a++) {
+			Key k = keys.get(a);
+			ByteBuffer b = data.get(a);
+			CRC32 crc = new CRC32();
+			crc.update(b.duplicate());
+			header.putInt(k.mode);
+			header.putInt(k.size);
+			header.putInt(k.depth);
+			header.putInt(k.value);
+			header.putInt((int)offset);
+			header.putInt(b.remaining()/4);
+			header.putLong(crc.getValue());
+			offset += b.remaining();
+		}
+		if(offset>Integer.MAX_VALUE)
+			throw new IOException("The cache ("+offset+" bytes) is too large to save.");
+		header.flip();
+
+		File tmp = new File(persistentFile.getPath()+".tmp");
+		boolean saved = false;
+		try {
+			FileChannel channel = FileChannel.open(tmp.toPath(), StandardOpenOption.CREATE, 
+					StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			try {
+				while(header.hasRemaining())
+					channel.write(header);
+				for(ByteBuffer b : data) {
+					b = b.duplicate();
+					while(b.hasRemaining())
+						channel.write(b);
+				}
+			} finally {
+				channel.close();
+			}
+			try {
+				Files.move(tmp.toPath(), persistentFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			} catch(IOException e) {
+				if(mapped==null)
+					throw e;
+				//the old file is probably still mapped: switch to the new file next time
+				Files.move(tmp.toPath(), getPendingFile(persistentFile).toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+			saved = true;
+		} finally {
+			if(!saved)
+				tmp.delete();
+		}
+		dirty = false;
+	}
+}
@@ -0,0 +1,261 @@
+/*
+* @(#)RenderKernel.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.util.*;
+import com.bric.awt.*;
+
+/** Renders the graphic of a <code>ColorPickerPanel</code> for one mode.
+ * <P>There is one implementation for each mode, so none of them has to
+ * test the mode inside its pixel loop.  Each kernel is immutable once
+ * it is created, so several threads can render different rows of the same
+ * kernel at once.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+interface RenderKernel {
+
+	/** Renders rows <code>[y0, y1)</code>.
+	 *
+	 * @param dst the pixels to write to, in ARGB.
+	 * @param offset the index of the first pixel of row 0 in <code>dst</code>.
+	 * @param scan the distance from one row to the next in <code>dst</code>.
+	 * @param y0 the first row to render.
+	 * @param y1 the row after the last row to render.
+	 */
+	public void render(int[] dst,int offset,int scan,int y0,int y1);
+
+	/** Renders the square used in HUE mode: saturation increases to the right,
+	 * and brightness increases downward.
+	 */
+	static class Hue implements RenderKernel {
+		final Quantizer quantizer;
+		final int size;
+		final float hue;
+		/** The saturation of each column. */
+		final float[] sat;
+
+		Hue(Quantizer quantizer,int size,float hue) {
+			this.quantizer = quantizer;
+			this.size = size;
+			this.hue = hue;
+			sat = new float[size];
+			for(int x = 0; x<size; x++) {
+				sat[x] = ((float)x)/((float)(size-1));
+			}
+		}
+
+		public void render(int[] dst,int offset,int scan,int y0,int y1) {
+			for(int y = y0; y<y1; y++) {
+				float y2 = ((float)y)/((float)(size-1));
+				int row = offset+y*scan;
+				ColorConversion.HSBtoRGB(hue, sat, y2, dst, row, size);
+				quantizer.quantizeRGB(dst, row, size);
+			}
+		}
+	}
+
+	/** Renders the wheel used in BRI mode: the hue goes around the wheel,
+	 * and the saturation increases outward.
+	 * <P>This scales the wheel's full brightness layer instead of converting
+	 * every pixel from HSB.
+	 * @see WheelGeometry#getBrightnessLayer()
+	 */
+	static class Bri implements RenderKernel {
+		final Quantizer quantizer;
+		final WheelGeometry geometry;
+		final float[] red, green, blue;
+		final float bri;
+
+		Bri(Quantizer quantizer,WheelGeometry geometry,float bri) {
+			this.quantizer = quantizer;
+			this.geometry = geometry;
+			float[][] layer = geometry.getBrightnessLayer();
+			red = layer[0];
+			green = layer[1];
+			blue = layer[2];
+			this.bri = bri;
+		}
+
+		public void render(int[] dst,int offset,int scan,int y0,int y1) {
+			int size = geometry.size;
+			float bri2 = bri;
+			float[] red = this.red, green = this.green, blue = this.blue;
+			byte[] alpha = geometry.alpha;
+			for(int y = y0; y<y1; y++) {
+				int row = offset+y*scan;
+				int start = geometry.spanStart[y];
+				int end = geometry.spanEnd[y];
+				Arrays.fill(dst, row, row+start, 0);
+				//d-i is the same for every pixel, so this loop is unit-stride throughout:
+				int d = row-y*size;
+				for(int i = y*size+start; i<y*size+end; i++) {
+					int r = (int)(bri2 * red[i] * 255.0f + 0.5f);
+					int g = (int)(bri2 * green[i] * 255.0f + 0.5f);
+					int b = (int)(bri2 * blue[i] * 255.0f + 0.5f);
+					dst[d+i] = (alpha[i] << 24) | (r << 16) | (g << 8) | b;
+				}
+				//quantizing preserves the alpha, so this can come after it is set:
+				quantizer.quantizeRGB(dst, row+start, end-start);
+				Arrays.fill(dst, row+end, row+size, 0);
+			}
+		}
+	}
+
+	/** Renders the wheel used in SAT mode: the hue goes around the wheel,
+	 * and the brightness increases outward.
+	 */
+	static class Sat implements RenderKernel {
+		final Quantizer quantizer;
+		final WheelGeometry geometry;
+		final float sat;
+
+		Sat(Quantizer quantizer,WheelGeometry geometry,float sat) {
+			this.quantizer = quantizer;
+			this.geometry = geometry;
+			this.sat = sat;
+		}
+
+		public void render(int[] dst,int offset,int scan,int y0,int y1) {
+			int size = geometry.size;
+			float sat2 = sat;
+			float[] hue = geometry.hue;
+			float[] radius = geometry.radius;
+			byte[] alpha = geometry.alpha;
+			boolean identity = quantizer.identity;
+			for(int y = y0; y<y1; y++) {
+				int row = offset+y*scan;
+				int start = geometry.spanStart[y];
+				int end = geometry.spanEnd[y];
+				Arrays.fill(dst, row, row+start, 0);
+				if(identity) {
+					for(int x = start, i = y*size+start; x<end; x++, i++) {
+						dst[row+x] = (ColorConversion.HSBtoRGB(hue[i], sat2, radius[i]) & 0xffffff) | (alpha[i] << 24);
+					}
+				} else {
+					for(int x = start, i = y*size+start; x<end; x++, i++) {
+						dst[row+x] = (quantizer.quantizeRGB(ColorConversion.HSBtoRGB(hue[i], sat2, radius[i])) & 0xffffff) | (alpha[i] << 24);
+					}
+				}
+				Arrays.fill(dst, row+end, row+size, 0);
+			}
+		}
+	}
+
+	/** Renders one of the squares used in RED, GREEN, or BLUE mode.
+	 * <P>Every pixel is the fixed channel, OR'd with one value that
+	 * depends only on its column and one that depends only on its row.
+	 * Both of these are looked up in tables built when the kernel is created.
+	 * <P>At low depths the square is only a small grid of distinct cells.
+	 * Then each row is filled one run of identical columns at a time, and
+	 * rows identical to the row above are simply copied.  So the cost depends
+	 * on the depth, not on the number of pixels.
+	 */
+	static abstract class Plane implements RenderKernel {
+		final Quantizer quantizer;
+		final int size;
+		final int[] columns;
+		final int[] rows;
+		final int fixed;
+		/** Where each run of identical columns starts, followed by <code>size</code>.
+		 * This is <code>null</code> if the runs are too short to be worth it.
+		 */
+		final int[] runs;
+
+		Plane(Quantizer quantizer,int size,int fixed) {
+			this.quantizer = quantizer;
+			this.size = size;
+			this.fixed = 0xFF000000 | fixed;
+			columns = new int[size];
+			rows = new int[size];
+			int runCount = 0;
+			for(int a = 0; a<size; a++) {
+				columns[a] = getColumnBits(a*256/size);
+				rows[a] = getRowBits(a*256/size);
+				if(a==0 || columns[a]!=columns[a-1])
+					runCount++;
+			}
+			if(runCount*4<=size) {
+				runs = new int[runCount+1];
+				int k = 0;
+				for(int a = 0; a<size; a++) {
+					if(a==0 || columns[a]!=columns[a-1])
+						runs[k++] = a;
+				}
+				runs[k] = size;
+			} else {
+				runs = null;
+			}
+		}
+
+		/** @return the bits for a column, given a channel value from [0,255]. */
+		abstract int getColumnBits(int v);
+
+		/** @return the bits for a row, given a channel value from [0,255]. */
+		abstract int getRowBits(int v);
+
+		public void render(int[] dst,int offset,int scan,int y0,int y1) {
+			for(int y = y0; y<y1; y++) {
+				int i = offset+y*scan;
+				if(y>y0 && rows[y]==rows[y-1]) {
+					System.arraycopy(dst, i-scan, dst, i, size);
+				} else if(runs!=null) {
+					int base = fixed | rows[y];
+					for(int k = 0; k<runs.length-1; k++) {
+						Arrays.fill(dst, i+runs[k], i+runs[k+1], base | columns[runs[k]]);
+					}
+				} else {
+					int base = fixed | rows[y];
+					for(int x = 0; x<size; x++, i++) {
+						dst[i] = base | columns[x];
+					}
+				}
+			}
+		}
+	}
+
+	/** Renders the square used in RED mode: green increases to the right,
+	 * and blue increases downward.
+	 */
+	static class Red extends Plane {
+		Red(Quantizer quantizer,int size,int red) {
+			super(quantizer, size, red << 16);
+		}
+
+		int getColumnBits(int v) { return quantizer.green[v] << 8; }
+		int getRowBits(int v) { return quantizer.blue[v]; }
+	}
+
+	/** Renders the square used in GREEN mode: red increases to the right,
+	 * and blue increases downward.
+	 */
+	static class Green extends Plane {
+		Green(Quantizer quantizer,int size,int green) {
+			super(quantizer, size, green << 8);
+		}
+
+		int getColumnBits(int v) { return quantizer.red[v] << 16; }
+		int getRowBits(int v) { return quantizer.blue[v]; }
+	}
+
+	/** Renders the square used in BLUE mode: red increases to the right,
+	 * and green increases downward.
+	 */
+	static class Blue extends Plane {
+		Blue(Quantizer quantizer,int size,int blue) {
+			super(quantizer, size, blue);
+		}
+
+		int getColumnBits(int v) { return quantizer.red[v] << 16; }
+		int getRowBits(int v) { return quantizer.green[v] << 8; }
+	}
+}
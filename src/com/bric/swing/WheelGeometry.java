@@ -0,0 +1,252 @@
+/*
+* @(#)WheelGeometry.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.util.*;
+
+/** The polar coordinates of every pixel in the color wheel the
+ * <code>ColorPickerPanel</code> uses in SAT and BRI mode.
+ * <P>None of this depends on the selected color, so it is computed
+ * once per size and then shared: regenerating the wheel only has
+ * to do the color math.
+ * <P>The wheel is symmetric about both of its axes, so the radius and
+ * the edge alpha are only computed for one quadrant and mirrored
+ * into the other three.  (The angle is not mirrored, because
+ * <code>Math.atan2</code> is not exactly symmetric, and the wheel
+ * must look exactly the same as it always has.)
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+class WheelGeometry {
+
+	/** The number of pixels to antialias along the edge of the wheel. */
+	private static final float K = 1.2f;
+
+	/** How many sizes we remember.  Most of the time there is only
+	 * one size in use, but a few more smooth over resizing back and forth.
+	 */
+	private static final int CACHE_SIZE = 4;
+
+	/** The most bytes the remembered sizes may use in all, including their
+	 * brightness layers.  A wheel on a large HiDPI screen can cover millions of
+	 * pixels, so then fewer sizes are remembered.  (The most recent size is always
+	 * remembered, because it is needed to render every frame.)
+	 */
+	private static final long CACHE_BYTES = 64*1024*1024;
+
+	/** The bytes each pixel uses: the hue, the radius, and the alpha. */
+	private static final int BYTES_PER_PIXEL = 9;
+
+	/** The bytes each pixel of the brightness layer uses. */
+	private static final int LAYER_BYTES_PER_PIXEL = 12;
+
+	/** The bytes the remembered sizes use. */
+	private static long totalBytes = 0;
+
+	private static final LinkedHashMap<Integer, WheelGeometry> cache =
+		new LinkedHashMap<Integer, WheelGeometry>(CACHE_SIZE, .75f, true);
+
+	/** Returns the geometry for a wheel of the given diameter.
+	 *
+	 * @param size the diameter of the wheel, in pixels.  This must be positive.
+	 */
+	static WheelGeometry get(int size) {
+		synchronized(cache) {
+			Integer key = Integer.valueOf(size);
+			WheelGeometry g = cache.get(key);
+			if(g==null) {
+				g = new WheelGeometry(size);
+				cache.put(key, g);
+				g.cachedBytes = g.getByteCount();
+				totalBytes += g.cachedBytes;
+				trim();
+			}
+			return g;
+		}
+	}
+
+	/** Forgets the least recently used sizes until the cache fits in its bounds.
+	 * A forgotten geometry takes its brightness layer with it.
+	 */
+	private static void trim() {
+		Iterator<WheelGeometry> i = cache.values().iterator();
+		while(cache.size()>1 && (cache.size()>CACHE_SIZE || totalBytes>CACHE_BYTES)) {
+			WheelGeometry eldest = i.next();
+			totalBytes -= eldest.cachedBytes;
+			eldest.cachedBytes = 0;
+			i.remove();
+		}
+	}
+
+	/** Called when a geometry's brightness layer is created, so the cache counts it. */
+	private static void layerCreated(WheelGeometry g) {
+		synchronized(cache) {
+			if(cache.get(Integer.valueOf(g.size))!=g)
+				return;
+			long b = g.getByteCount();
+			totalBytes += b-g.cachedBytes;
+			g.cachedBytes = b;
+			trim();
+		}
+	}
+
+	/** The bytes of this geometry the cache counts.  This is guarded by <code>cache</code>. */
+	private long cachedBytes = 0;
+
+	/** @return the bytes this geometry uses, including its brightness layer if it has one. */
+	private synchronized long getByteCount() {
+		long pixels = ((long)size)*size;
+		return pixels*(brightnessLayer==null ? BYTES_PER_PIXEL : BYTES_PER_PIXEL+LAYER_BYTES_PER_PIXEL);
+	}
+
+	/** The width and height of this wheel. */
+	final int size;
+
+	/** The hue of each pixel, from [0,1]. */
+	final float[] hue;
+
+	/** The distance of each pixel from the center, from [0,1]. */
+	final float[] radius;
+
+	/** The alpha of each pixel inside the wheel.  This is 255 except along the
+	 * edge, where it antialiases the wheel.  (Only the pixels inside
+	 * <code>spanStart</code> and <code>spanEnd</code> are inside the wheel.)
+	 */
+	final byte[] alpha;
+
+	/** The first and last+1 column of each row that is inside the wheel.
+	 * Every pixel outside this span is transparent, with all four channels zero.
+	 * The wheel is convex, so every pixel inside the span is inside the wheel.
+	 */
+	final int[] spanStart, spanEnd;
+
+	/** The wheel used in BRI mode at full brightness, as one float per channel per pixel.
+	 * @see #getBrightnessLayer()
+	 */
+	private float[][] brightnessLayer;
+
+	private WheelGeometry(int size) {
+		if(size<=0)
+			throw new IllegalArgumentException("The size ("+size+") must be positive.");
+		this.size = size;
+		hue = new float[size*size];
+		radius = new float[size*size];
+		alpha = new byte[size*size];
+		spanStart = new int[size];
+		spanEnd = new int[size];
+		//which pixels are inside the wheel.  This is only needed while the geometry is built.
+		boolean[] inside = new boolean[size*size];
+
+		float r0 = ((float)size)/2f;
+		/* Pixel (x,y) sits at (x-size/2, y-size/2), so its mirror image
+		 * across the vertical axis is at (size-x, y).  That is only inside
+		 * the image when x>0.  We walk backwards so the mirror image is always
+		 * already known.  Rows mirror the same way.
+		 */
+		for(int y = size-1; y>=0; y--) {
+			float y2 = (y-size/2f);
+			int row = y*size;
+			if(y2<0 && y>0) {
+				int src = (size-y)*size;
+				System.arraycopy(radius, src, radius, row, size);
+				System.arraycopy(alpha, src, alpha, row, size);
+				System.arraycopy(inside, src, inside, row, size);
+			} else {
+				for(int x = size-1; x>=0; x--) {
+					float x2 = (x-size/2f);
+					int i = row+x;
+					if(x2<0 && x>0) {
+						radius[i] = radius[row+size-x];
+						alpha[i] = alpha[row+size-x];
+						inside[i] = inside[row+size-x];
+						continue;
+					}
+
+					double r = Math.sqrt(x2*x2+y2*y2);
+					if(r<=r0) {
+						radius[i] = (float)(r/r0);
+						int alpha = 255;
+						if(r>r0-K) {
+							alpha = (int)(255-255*(r-r0+K)/K);
+							if(alpha<0) alpha = 0;
+							if(alpha>255) alpha = 255;
+						}
+						this.alpha[i] = (byte)alpha;
+						inside[i] = true;
+					}
+				}
+			}
+			for(int x = 0; x<size; x++) {
+				int i = row+x;
+				if(!inside[i])
+					continue;
+				float x2 = (x-size/2f);
+				double theta = Math.atan2(y2,x2)-3*Math.PI/2.0;
+				if(theta<0) theta+=2*Math.PI;
+				hue[i] = (float)(theta/(2*Math.PI));
+			}
+			int start = 0;
+			while(start<size && !inside[row+start]) start++;
+			int end = size;
+			while(end>start && !inside[row+end-1]) end--;
+			spanStart[y] = start;
+			spanEnd[y] = end;
+		}
+	}
+
+	/** Returns the red, green and blue of every pixel in the BRI mode wheel,
+	 * before they are multiplied by the brightness.
+	 * <P>This returns three arrays: red, green and blue.  Each channel is kept
+	 * in its own array so a row can be scaled with plain unit-stride loops.
+	 * <code>Color.HSBtoRGB()</code> multiplies each of
+	 * these factors by the brightness and then by 255, so
+	 * <code>(int)(brightness*factor*255f+.5f)</code> gives exactly the same
+	 * channel it does.  This lets BRI mode skip the hue math entirely when only
+	 * the brightness changes.
+	 */
+	float[][] getBrightnessLayer() {
+		synchronized(this) {
+			if(brightnessLayer!=null)
+				return brightnessLayer;
+			float[][] layer = new float[3][size*size];
+			for(int y = 0; y<size; y++) {
+				for(int i = y*size+spanStart[y]; i<y*size+spanEnd[y]; i++) {
+					float s = radius[i];
+					float r = 1, g = 1, b = 1;
+					if(s!=0) {
+						//this mirrors Color.HSBtoRGB(), without the brightness
+						float h = (hue[i] - (float)Math.floor(hue[i])) * 6.0f;
+						float f = h - (float)Math.floor(h);
+						float p = 1.0f - s;
+						float q = 1.0f - s * f;
+						float t = 1.0f - (s * (1.0f - f));
+						switch((int)h) {
+						case 0: g = t; b = p; break;
+						case 1: r = q; b = p; break;
+						case 2: r = p; b = t; break;
+						case 3: r = p; g = q; break;
+						case 4: r = t; g = p; break;
+						case 5: g = p; b = q; break;
+						}
+					}
+					layer[0][i] = r;
+					layer[1][i] = g;
+					layer[2][i] = b;
+				}
+			}
+			brightnessLayer = layer;
+		}
+		//the lock on this is released first, because the cache locks its own lock and then this:
+		layerCreated(this);
+		return brightnessLayer;
+	}
+}
@@ -0,0 +1,66 @@
+/*
+* @(#)ColorConversionBenchmark.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+/** Times the bulk <code>ColorConversion.HSBtoRGB()</code> methods on rows
+ * like the ones the color pickers render.
+ * <P>Run this once normally, and once with <code>--add-modules jdk.incubator.vector
+ * -Dcom.bric.awt.vector=true</code>, to see whether the Vector API loops are
+ * worth turning on for a given JVM and CPU.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class ColorConversionBenchmark {
+
+	/** The number of pixels converted in each timed pass. */
+	private static final int PIXELS = 20000000;
+
+	private static final int PASSES = 15;
+
+	public static void main(String[] args) {
+		long sink = 0;
+		for(int length : new int[] {32, 300, 1200}) {
+			float[] ramp = new float[length];
+			for(int a = 0; a<length; a++) {
+				ramp[a] = ((float)a)/((float)(length-1));
+			}
+			int[] dst = new int[length];
+			int rows = PIXELS/length;
+			double bestSaturations = Double.MAX_VALUE;
+			double bestBrightnesses = Double.MAX_VALUE;
+			for(int pass = 0; pass<PASSES; pass++) {
+				long start = System.nanoTime();
+				for(int row = 0; row<rows; row++) {
+					ColorConversion.HSBtoRGB(((float)row)/rows, ramp, ramp[row%length], dst, 0, length);
+					sink += dst[length/2];
+				}
+				long middle = System.nanoTime();
+				for(int row = 0; row<rows; row++) {
+					ColorConversion.HSBtoRGB(((float)row)/rows, ramp[row%length], ramp, dst, 0, length);
+					sink += dst[length/2];
+				}
+				long end = System.nanoTime();
+				bestSaturations = Math.min(bestSaturations, ((double)(middle-start))/(rows*length));
+				bestBrightnesses = Math.min(bestBrightnesses, ((double)(end-middle))/(rows*length));
+			}
+			System.out.println("rows of "+length+": "+format(bestSaturations)+" ns/pixel varying the saturation, "+
+					format(bestBrightnesses)+" ns/pixel varying the brightness");
+		}
+		//this keeps the JIT from discarding the work:
+		if(sink==42)
+			System.out.println();
+	}
+
+	private static String format(double d) {
+		return String.valueOf(Math.round(d*1000)/1000.0);
+	}
+}
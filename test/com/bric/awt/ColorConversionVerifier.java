@@ -0,0 +1,112 @@
+/*
+* @(#)ColorConversionVerifier.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.awt;
+
+import java.awt.*;
+
+/** Checks that <code>ColorConversion</code> gives exactly the same results as
+ * <code>Color.HSBtoRGB()</code> and <code>Color.RGBtoHSB()</code>.
+ * <P>Every one of the 2^24 RGB colors is converted to HSB, both before and after
+ * it is remembered.  The HSB values of every color are converted back with the
+ * scalar method and with both bulk methods.  Then the bulk methods convert rows
+ * like the ones the <code>ColorPickerPanel</code> renders, across a range of hues,
+ * including hues outside of [0,1].
+ * <P>This prints each mismatch it finds, and exits with 1 if there were any.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class ColorConversionVerifier {
+
+	/** The length of the rows the bulk methods are checked with. */
+	private static final int ROW = 512;
+
+	private static long failures = 0;
+
+	public static void main(String[] args) {
+		verifyCube();
+		verifyRows();
+		if(failures>0) {
+			System.out.println(failures+" mismatches");
+			System.exit(1);
+		}
+		System.out.println("ColorConversion matches java.awt.Color.");
+	}
+
+	private static void verifyCube() {
+		float[] expected = new float[3];
+		float[] actual = new float[3];
+		float[] one = new float[1];
+		int[] dst = new int[3];
+		for(int pass = 0; pass<2; pass++) {
+			for(int rgb = 0; rgb<(1 << 24); rgb++) {
+				int r = (rgb >> 16) & 0xff;
+				int g = (rgb >> 8) & 0xff;
+				int b = rgb & 0xff;
+				Color.RGBtoHSB(r, g, b, expected);
+				ColorConversion.RGBtoHSB(r, g, b, actual);
+				if(actual[0]!=expected[0] || actual[1]!=expected[1] || actual[2]!=expected[2])
+					fail("RGBtoHSB("+r+", "+g+", "+b+") pass "+pass+": "+
+							toString(actual)+" instead of "+toString(expected));
+				if(pass>0)
+					continue;
+
+				float h = expected[0], s = expected[1], v = expected[2];
+				int e = Color.HSBtoRGB(h, s, v);
+				check("HSBtoRGB", h, s, v, ColorConversion.HSBtoRGB(h, s, v), e);
+				one[0] = s;
+				ColorConversion.HSBtoRGB(h, one, v, dst, 1, 1);
+				check("HSBtoRGB(float[] saturation)", h, s, v, dst[1], e);
+				one[0] = v;
+				ColorConversion.HSBtoRGB(h, s, one, dst, 2, 1);
+				check("HSBtoRGB(float[] brightness)", h, s, v, dst[2], e);
+			}
+		}
+	}
+
+	private static void verifyRows() {
+		float[] ramp = new float[ROW];
+		for(int a = 0; a<ROW; a++) {
+			ramp[a] = ((float)a)/((float)(ROW-1));
+		}
+		int[] dst = new int[ROW+1];
+		for(int k = -64; k<=1600; k++) {
+			float h = k/1536f;
+			for(int i = 0; i<ROW; i++) {
+				float fixed = ramp[i];
+				ColorConversion.HSBtoRGB(h, ramp, fixed, dst, 1, ROW);
+				for(int a = 0; a<ROW; a++) {
+					check("HSBtoRGB(float[] saturation)", h, ramp[a], fixed, dst[a+1], Color.HSBtoRGB(h, ramp[a], fixed));
+				}
+				ColorConversion.HSBtoRGB(h, fixed, ramp, dst, 1, ROW);
+				for(int a = 0; a<ROW; a++) {
+					check("HSBtoRGB(float[] brightness)", h, fixed, ramp[a], dst[a+1], Color.HSBtoRGB(h, fixed, ramp[a]));
+				}
+			}
+		}
+	}
+
+	private static void check(String name,float h,float s,float b,int actual,int expected) {
+		if(actual!=expected)
+			fail(name+" of ("+h+", "+s+", "+b+"): 0x"+Integer.toHexString(actual)+
+					" instead of 0x"+Integer.toHexString(expected));
+	}
+
+	private static void fail(String message) {
+		if(failures<20)
+			System.out.println(message);
+		failures++;
+	}
+
+	private static String toString(float[] hsb) {
+		return "("+hsb[0]+", "+hsb[1]+", "+hsb[2]+")";
+	}
+}
@@ -0,0 +1,270 @@
+/*
+* @(#)ColorPickerEventVerifier.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.awt.*;
+import java.beans.*;
+import java.lang.reflect.*;
+import java.util.*;
+import java.util.List;
+import javax.swing.*;
+
+/** Checks the <code>PropertyChangeEvents</code> a <code>ColorPicker</code> fires
+ * when its color is set, when its spinners are edited, and during gestures on the
+ * color panel, the slider and the opacity slider.
+ * <P>Each step is checked against the exact sequence of events it should fire.
+ * Each listener also checks that <code>getSnapshot()</code> was already up to date
+ * when it was notified, and when a gesture ends, that the spinners and the hex
+ * field were brought up to date before the <code>VALUE_IS_ADJUSTING_PROPERTY</code> fired.
+ * <P>This prints each failure it finds, and exits with 1 if there were any.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class ColorPickerEventVerifier {
+
+	private static final String SELECTED = ColorPicker.SELECTED_COLOR_PROPERTY;
+	private static final String OPACITY = ColorPicker.OPACITY_PROPERTY;
+	private static final String COMMITTED = ColorPicker.COMMITTED_COLOR_PROPERTY;
+	private static final String ADJUSTING = ColorPicker.VALUE_IS_ADJUSTING_PROPERTY;
+
+	private static int failures = 0;
+
+	/** The events fired since the last step was checked. */
+	private static List<String> events = new ArrayList<String>();
+
+	private static ColorPicker picker;
+
+	public static void main(String[] args) throws Exception {
+		SwingUtilities.invokeAndWait(new Runnable() {
+			public void run() {
+				try {
+					verify();
+				} catch(Exception e) {
+					e.printStackTrace(System.out);
+					failures++;
+				}
+			}
+		});
+		if(failures>0) {
+			System.out.println(failures+" failures");
+			System.exit(1);
+		}
+		System.out.println("The ColorPicker fires the expected events.");
+		//the color panel's render threads would keep the JVM running:
+		System.exit(0);
+	}
+
+	private static void verify() throws Exception {
+		picker = new ColorPicker("888", true, true);
+		picker.addPropertyChangeListener(new PropertyChangeListener() {
+			public void propertyChange(PropertyChangeEvent e) {
+				String name = e.getPropertyName();
+				if(name.equals(SELECTED) || name.equals(OPACITY) || name.equals(COMMITTED) || name.equals(ADJUSTING)) {
+					events.add(event(name, e.getOldValue(), e.getNewValue()));
+					verifySnapshot(name, e.getNewValue());
+				}
+			}
+		});
+		ColorPickerPanel panel = picker.getColorPanel();
+		JSlider slider = (JSlider)get("slider");
+		JSlider opacitySlider = (JSlider)get("opacitySlider");
+		JTextField hexField = (JTextField)get("hexField");
+
+		picker.setColor(new Color(10, 20, 30, 128));
+		expect("setColor()",
+				color(SELECTED, 0xff000000, 0x800a141e),
+				opacity(255, 128),
+				color(COMMITTED, 0xff000000, 0x800a141e));
+
+		picker.setRGB(10, 20, 30);
+		expect("setRGB() with the same color");
+
+		picker.setOpacity(1);
+		expect("setOpacity()",
+				opacity(128, 255),
+				color(COMMITTED, 0x800a141e, 0xff0a141e));
+
+		picker.setHSB(0, 0, 0);
+		expect("setHSB()",
+				color(SELECTED, 0xff0a141e, 0xff000000),
+				color(COMMITTED, 0xff0a141e, 0xff000000));
+
+		//black is still black:
+		picker.setHSB(.4f, 0, 0);
+		expect("setHSB() with only a new hue");
+		check(picker.getSnapshot().getHue()==.4f, "the snapshot should have the new hue, not "+picker.getSnapshot().getHue());
+
+		option("red").spinner.setValue(Integer.valueOf(200));
+		expect("the red spinner",
+				color(SELECTED, 0xff000000, 0xffc80000),
+				color(COMMITTED, 0xff000000, 0xffc80000));
+
+		//the saturation and brightness are read from their spinners, which show 100 and 78:
+		int green = Color.HSBtoRGB(120f/360f, 1, .78f);
+		option("hue").spinner.setValue(Integer.valueOf(120));
+		expect("the hue spinner",
+				color(SELECTED, 0xffc80000, green),
+				color(COMMITTED, 0xffc80000, green));
+
+		option("alpha").spinner.setValue(Integer.valueOf(51));
+		expect("the alpha spinner",
+				opacity(255, 51),
+				color(COMMITTED, green, (green & 0xffffff) | 0x33000000));
+		green = (green & 0xffffff) | 0x33000000;
+
+		//a drag in the color panel commits once, when it ends:
+		panel.setValueIsAdjusting(true);
+		picker.setRGB(0, 200, 0);
+		picker.setRGB(0, 0, 200);
+		check(!hexField.getText().equalsIgnoreCase("0000C8"), "the hex field should not be updated while the value is adjusting");
+		panel.setValueIsAdjusting(false);
+		expect("a drag in the color panel",
+				adjusting(false, true),
+				color(SELECTED, green, 0x3300c800),
+				color(SELECTED, 0x3300c800, 0x330000c8),
+				adjusting(true, false),
+				color(COMMITTED, green, 0x330000c8));
+		check(hexField.getText().equalsIgnoreCase("0000C8"), "the hex field should be updated when the drag ends, not "+hexField.getText());
+
+		//the slider shows the brightness, and starts at the selected 50%:
+		picker.setHSB(.5f, 1, .5f);
+		int cyan = (Color.HSBtoRGB(.5f, 1, .5f) & 0xffffff) | 0x33000000;
+		int darkCyan = (Color.HSBtoRGB(.5f, 1, .25f) & 0xffffff) | 0x33000000;
+		slider.setValueIsAdjusting(true);
+		slider.setValue(25);
+		slider.setValueIsAdjusting(false);
+		expect("a drag on the slider",
+				color(SELECTED, 0x330000c8, cyan),
+				color(COMMITTED, 0x330000c8, cyan),
+				adjusting(false, true),
+				color(SELECTED, cyan, darkCyan),
+				adjusting(true, false),
+				color(COMMITTED, cyan, darkCyan));
+
+		opacitySlider.setValueIsAdjusting(true);
+		opacitySlider.setValue(102);
+		opacitySlider.setValue(204);
+		opacitySlider.setValueIsAdjusting(false);
+		expect("a drag on the opacity slider",
+				adjusting(false, true),
+				opacity(51, 102),
+				opacity(102, 204),
+				adjusting(true, false),
+				color(COMMITTED, darkCyan, (darkCyan & 0xffffff) | 0xcc000000));
+		darkCyan = (darkCyan & 0xffffff) | 0xcc000000;
+
+		//the value adjusts until the last of two overlapping gestures ends:
+		panel.setValueIsAdjusting(true);
+		opacitySlider.setValueIsAdjusting(true);
+		opacitySlider.setValue(255);
+		panel.setValueIsAdjusting(false);
+		opacitySlider.setValueIsAdjusting(false);
+		expect("overlapping gestures",
+				adjusting(false, true),
+				opacity(204, 255),
+				adjusting(true, false),
+				color(COMMITTED, darkCyan, darkCyan | 0xff000000));
+	}
+
+	/** Checks the events fired since the last step, and forgets them. */
+	private static void expect(String step,String... expected) {
+		if(!events.equals(Arrays.asList(expected))) {
+			System.out.println(step+" fired:");
+			for(String s : events) {
+				System.out.println("\t"+s);
+			}
+			System.out.println("instead of:");
+			for(String s : expected) {
+				System.out.println("\t"+s);
+			}
+			failures++;
+		}
+		events.clear();
+	}
+
+	/** Checks that the selection a listener can read already agrees with an event. */
+	private static void verifySnapshot(String name,Object newValue) {
+		ColorSnapshot s = picker.getSnapshot();
+		if(name.equals(SELECTED) || name.equals(COMMITTED)) {
+			check(s.getARGB()==((Color)newValue).getRGB(), name+" was fired before the snapshot was published");
+			check(picker.getColor().equals(newValue), name+" was fired before getColor() returned the new color");
+		} else if(name.equals(OPACITY)) {
+			check(s.getAlpha()/255f==((Float)newValue).floatValue(), name+" was fired before the snapshot was published");
+		} else if(name.equals(ADJUSTING)) {
+			check(picker.getValueIsAdjusting()==((Boolean)newValue).booleanValue(), name+" was fired before getValueIsAdjusting() changed");
+			if(!picker.getValueIsAdjusting())
+				verifyTextViews(s);
+		}
+	}
+
+	/** Checks that the spinners and the hex field show a snapshot. */
+	private static void verifyTextViews(ColorSnapshot s) {
+		try {
+			int[] expected = new int[] {
+					s.getRed(), s.getGreen(), s.getBlue(),
+					(int)(s.getHue()*360f+.49f), (int)(s.getSaturation()*100f+.49f), (int)(s.getBrightness()*100f+.49f),
+					s.getAlpha()
+			};
+			String[] names = new String[] {"red", "green", "blue", "hue", "sat", "bri", "alpha"};
+			for(int a = 0; a<names.length; a++) {
+				int actual = option(names[a]).getIntValue();
+				check(actual==expected[a], "the "+names[a]+" spinner showed "+actual+" instead of "+expected[a]+" when the value stopped adjusting");
+			}
+			String hex = ((JTextField)get("hexField")).getText();
+			String expectedHex = Integer.toHexString(0x1000000 | (s.getARGB() & 0xffffff)).substring(1);
+			check(hex.equalsIgnoreCase(expectedHex), "the hex field showed "+hex+" instead of "+expectedHex+" when the value stopped adjusting");
+		} catch(Exception e) {
+			e.printStackTrace(System.out);
+			failures++;
+		}
+	}
+
+	private static ColorPicker.Option option(String name) throws Exception {
+		return (ColorPicker.Option)get(name);
+	}
+
+	/** @return a private field of the <code>ColorPicker</code>. */
+	private static Object get(String name) throws Exception {
+		Field f = ColorPicker.class.getDeclaredField(name);
+		f.setAccessible(true);
+		return f.get(picker);
+	}
+
+	private static String color(String name,int oldARGB,int newARGB) {
+		return event(name, new Color(oldARGB, true), new Color(newARGB, true));
+	}
+
+	private static String opacity(int oldAlpha,int newAlpha) {
+		return event(OPACITY, Float.valueOf(oldAlpha/255f), Float.valueOf(newAlpha/255f));
+	}
+
+	private static String adjusting(boolean oldValue,boolean newValue) {
+		return event(ADJUSTING, Boolean.valueOf(oldValue), Boolean.valueOf(newValue));
+	}
+
+	private static String event(String name,Object oldValue,Object newValue) {
+		return name+": "+toString(oldValue)+" -> "+toString(newValue);
+	}
+
+	private static String toString(Object value) {
+		if(value instanceof Color)
+			return "0x"+Integer.toHexString(((Color)value).getRGB());
+		return String.valueOf(value);
+	}
+
+	private static void check(boolean b,String message) {
+		if(!b) {
+			System.out.println(message);
+			failures++;
+		}
+	}
+}
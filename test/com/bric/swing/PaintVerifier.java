@@ -0,0 +1,104 @@
+/*
+* @(#)PaintVerifier.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.awt.*;
+import java.awt.image.*;
+import com.bric.awt.*;
+
+/** Checks that the paints in <code>com.bric.awt</code> produce exactly the
+ * same pixels as the <code>RenderKernel</code> the <code>ColorPickerPanel</code>
+ * uses for the same mode, when they fill the same square through an
+ * identity transform.
+ * <P>The wheels are only compared inside the wheel: outside of it the
+ * kernels are transparent, and the paints continue the edge.
+ * <P>This prints each mismatch it finds, and exits with 1 if there were any.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class PaintVerifier {
+
+	private static final int[] SIZES = {2, 3, 17, 64, 101, 243, 300};
+	private static final float[] FRACTIONS = {0, .1f, 1f/3f, .5f, .77f, 1};
+	private static final int[] VALUES = {0, 1, 100, 128, 254, 255};
+
+	private static int failures = 0;
+
+	public static void main(String[] args) {
+		Quantizer quantizer = Quantizer.get(new int[] {8, 8, 8});
+		for(int size : SIZES) {
+			for(float f : FRACTIONS) {
+				verify("HUE "+f, size,
+						new RenderKernel.Hue(quantizer, size, f),
+						new HSBSquarePaint(new Rectangle(0, 0, size, size), f), false);
+				verify("SAT "+f, size,
+						new RenderKernel.Sat(quantizer, WheelGeometry.get(size), f),
+						new HSBWheelPaint(new Rectangle(0, 0, size, size), HSBWheelPaint.SATURATION, f), true);
+				verify("BRI "+f, size,
+						new RenderKernel.Bri(quantizer, WheelGeometry.get(size), f),
+						new HSBWheelPaint(new Rectangle(0, 0, size, size), HSBWheelPaint.BRIGHTNESS, f), true);
+			}
+			for(int v : VALUES) {
+				verify("RED "+v, size,
+						new RenderKernel.Red(quantizer, size, v),
+						new RGBPlanePaint(new Rectangle(0, 0, size, size), RGBPlanePaint.RED, v), false);
+				verify("GREEN "+v, size,
+						new RenderKernel.Green(quantizer, size, v),
+						new RGBPlanePaint(new Rectangle(0, 0, size, size), RGBPlanePaint.GREEN, v), false);
+				verify("BLUE "+v, size,
+						new RenderKernel.Blue(quantizer, size, v),
+						new RGBPlanePaint(new Rectangle(0, 0, size, size), RGBPlanePaint.BLUE, v), false);
+			}
+		}
+		if(failures>0) {
+			System.out.println(failures+" mismatches");
+			System.exit(1);
+		}
+		System.out.println("The paints match the kernels.");
+	}
+
+	/** Compares one kernel with one paint at one size.
+	 *
+	 * @param wheel whether only the pixels inside the kernel's wheel should be compared.
+	 */
+	private static void verify(String name,int size,RenderKernel kernel,Paint paint,boolean wheel) {
+		int[] expected = new int[size*size];
+		kernel.render(expected, 0, size, 0, size);
+
+		BufferedImage image = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+		Graphics2D g = image.createGraphics();
+		g.setPaint(paint);
+		g.fillRect(0, 0, size, size);
+		g.dispose();
+		int[] actual = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+
+		int mismatches = 0;
+		for(int i = 0; i<expected.length; i++) {
+			int e = expected[i];
+			int a = actual[i];
+			if(wheel) {
+				if((e >>> 24)==0)
+					continue;
+				//the kernel's alpha antialiases the edge, and the paint is opaque:
+				e = e & 0xffffff;
+				a = a & 0xffffff;
+			}
+			if(e!=a) {
+				if(mismatches<5)
+					System.out.println(name+" size "+size+" at ("+(i%size)+", "+(i/size)+"): kernel 0x"+
+							Integer.toHexString(e)+", paint 0x"+Integer.toHexString(a));
+				mismatches++;
+			}
+		}
+		failures += mismatches;
+	}
+}
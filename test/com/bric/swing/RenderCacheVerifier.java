@@ -0,0 +1,281 @@
+/*
+* @(#)RenderCacheVerifier.java  1.5  2026-10-18
+*
+* Copyright (c) 2026 Kevin Walsh
+* All rights reserved.
+*
+* This software is released under the BSD 3-Clause license.
+* For details see the accompanying LICENSE file.
+*/
+
+package com.bric.swing;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.file.*;
+import java.util.*;
+
+/** Checks the <code>RenderCache</code>: eviction by bytes, the hit and miss counts,
+ * the default capacity, and the persistent file, including how it falls back
+ * when the file is truncated or corrupt.
+ * <P>This prints each failure it finds, and exits with 1 if there were any.
+ *
+ * @version 1.5
+ * @author Kevin Walsh
+ */
+public class RenderCacheVerifier {
+
+	/** The width and height of the test graphics. */
+	private static final int SIZE = 10;
+
+	/** The bytes in one test graphic. */
+	private static final int BYTES = 4*SIZE*SIZE;
+
+	/** Where the fingerprint is in the header of a persistent file. */
+	private static final int FINGERPRINT_OFFSET = 8;
+
+	/** Where the index starts in a persistent file. */
+	private static final int INDEX_OFFSET = 16;
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException {
+		File dir = Files.createTempDirectory("RenderCacheVerifier").toFile();
+		try {
+			verifyEviction();
+			verifyCounts();
+			verifyCopies();
+			verifyDefaultCapacity();
+			verifyPersistence(new File(dir, "cache"));
+			verifyCorruption(new File(dir, "corrupt"));
+		} finally {
+			RenderCache.setPersistentFile(null);
+			RenderCache.setCapacity(-1);
+			RenderCache.clear();
+			for(File f : dir.listFiles()) {
+				f.delete();
+			}
+			dir.delete();
+		}
+		if(failures>0) {
+			System.out.println(failures+" failures");
+			System.exit(1);
+		}
+		System.out.println("The RenderCache works as expected.");
+	}
+
+	private static void verifyEviction() {
+		reset(3*BYTES);
+		RenderCache.Key a = key(1), b = key(2), c = key(3), d = key(4);
+		RenderCache.put(a, graphic(1), true);
+		RenderCache.put(b, graphic(2), true);
+		RenderCache.put(c, graphic(3), true);
+		check(RenderCache.getSize()==3*BYTES, "three graphics should fill the cache, not "+RenderCache.getSize()+" bytes");
+		//using a makes b the least recently used:
+		RenderCache.get(a);
+		RenderCache.put(d, graphic(4), true);
+		check(!RenderCache.contains(b), "the least recently used graphic should be evicted");
+		check(RenderCache.contains(a) && RenderCache.contains(c) && RenderCache.contains(d), "the other graphics should be kept");
+		check(RenderCache.getSize()==3*BYTES, "the size should be 3 graphics, not "+RenderCache.getSize()+" bytes");
+
+		//contains() must not make a graphic recently used, so c is still the eldest:
+		RenderCache.contains(c);
+		RenderCache.put(b, graphic(2), true);
+		check(!RenderCache.contains(c), "contains() should not change which graphic is evicted");
+
+		RenderCache.setCapacity(BYTES);
+		check(RenderCache.getSize()==BYTES, "a smaller capacity should evict right away, leaving "+RenderCache.getSize()+" bytes");
+		check(RenderCache.contains(b), "the most recently used graphic should be kept");
+
+		RenderCache.put(key(5), new int[SIZE*SIZE*2], true);
+		check(!RenderCache.contains(key(5)), "a graphic larger than the capacity should not be stored");
+		check(RenderCache.contains(b), "a graphic larger than the capacity should not evict anything");
+
+		RenderCache.setCapacity(0);
+		check(RenderCache.getSize()==0, "a capacity of zero should empty the cache");
+		try {
+			RenderCache.setCapacity(-2);
+			check(false, "setCapacity(-2) should throw an exception");
+		} catch(IllegalArgumentException e) {}
+	}
+
+	private static void verifyCounts() {
+		reset(3*BYTES);
+		RenderCache.Key a = key(1);
+		check(RenderCache.get(a)==null, "an empty cache should not return a graphic");
+		RenderCache.put(a, graphic(1), true);
+		check(Arrays.equals(RenderCache.get(a), graphic(1)), "get() should return the pixels that were put");
+		RenderCache.get(a);
+		RenderCache.contains(a);
+		RenderCache.contains(key(2));
+		check(RenderCache.getHitCount()==2, "there should be 2 hits, not "+RenderCache.getHitCount());
+		check(RenderCache.getMissCount()==1, "there should be 1 miss, not "+RenderCache.getMissCount());
+		RenderCache.clear();
+		check(RenderCache.getHitCount()==0 && RenderCache.getMissCount()==0, "clear() should reset the counts");
+		check(!RenderCache.contains(a) && RenderCache.getSize()==0, "clear() should discard every graphic");
+	}
+
+	private static void verifyCopies() {
+		reset(3*BYTES);
+		int[] src = graphic(1);
+		RenderCache.put(key(1), src, true);
+		src[0] = 0;
+		check(RenderCache.get(key(1))[0]==graphic(1)[0], "put() should store a copy");
+
+		int[] owned = graphic(2);
+		RenderCache.putOwned(key(2), owned);
+		check(RenderCache.get(key(2))==owned, "putOwned() should store the array itself");
+	}
+
+	private static void verifyDefaultCapacity() {
+		reset(-1);
+		long min = 16*1024*1024;
+		long max = Math.max(min, Runtime.getRuntime().maxMemory()/4);
+		check(RenderCache.getCapacity()==min, "the default capacity should start at 16 MB, not "+RenderCache.getCapacity());
+		int side = 1500;
+		long large = 4L*side*side;
+		RenderCache.putOwned(key(1, side), new int[side*side]);
+		long expected = Math.max(min, Math.min(8*large, max));
+		check(RenderCache.getCapacity()==expected, "the default capacity should be "+expected+", not "+RenderCache.getCapacity());
+		for(int a = 2; a<=4; a++) {
+			RenderCache.putOwned(key(a, side), new int[side*side]);
+		}
+		if(expected>=4*large) {
+			check(RenderCache.contains(key(1, side)), "four large graphics should fit in the default capacity");
+		}
+		RenderCache.setCapacity(1000);
+		check(RenderCache.getCapacity()==1000, "setCapacity() should override the default");
+		RenderCache.setCapacity(-1);
+		check(RenderCache.getCapacity()==expected, "setCapacity(-1) should restore the default");
+		RenderCache.clear();
+	}
+
+	private static void verifyPersistence(File file) throws IOException {
+		reset(-1);
+		RenderCache.setPersistentFile(file);
+		RenderCache.put(key(1), graphic(1), true);
+		RenderCache.put(key(2), graphic(2), false);
+		RenderCache.putOwned(key(3), graphic(3));
+		RenderCache.putOwned(key(4), graphic(4));
+		RenderCache.setPersistent(key(4));
+		RenderCache.save();
+		check(file.length()>0, "save() should write the file");
+
+		startSession(file);
+		check(Arrays.equals(RenderCache.get(key(1)), graphic(1)), "a saved graphic should be read back");
+		check(Arrays.equals(RenderCache.get(key(4)), graphic(4)), "a graphic marked persistent should be read back");
+		check(!RenderCache.contains(key(2)), "a graphic put as transient should not be saved");
+		check(!RenderCache.contains(key(3)), "a pre-rendered graphic should not be saved");
+		check(RenderCache.getHitCount()==2, "reading from the file should count as hits, not "+RenderCache.getHitCount());
+
+		//a file a save couldn't put in place is used the next time:
+		File pending = new File(file.getPath()+".new");
+		Files.copy(file.toPath(), pending.toPath());
+		Files.write(file.toPath(), new byte[] {1, 2, 3});
+		startSession(file);
+		check(!pending.exists(), "the pending file should replace the old file");
+		check(Arrays.equals(RenderCache.get(key(1)), graphic(1)), "the pending file's graphics should be read");
+		RenderCache.setPersistentFile(null);
+	}
+
+	private static void verifyCorruption(File file) throws IOException {
+		reset(-1);
+		RenderCache.setPersistentFile(file);
+		check(RenderCache.get(key(1))==null, "a missing file should leave the cache empty");
+		for(int a = 1; a<=3; a++) {
+			RenderCache.put(key(a), graphic(a), true);
+		}
+		RenderCache.save();
+		byte[] good = Files.readAllBytes(file.toPath());
+
+		startSession(file);
+		check(RenderCache.contains(key(1)) && RenderCache.contains(key(3)), "the good file should be read");
+
+		byte[] truncated = Arrays.copyOf(good, good.length-BYTES/2);
+		verifyIgnored(file, truncated, "a truncated file");
+		verifyIgnored(file, Arrays.copyOf(good, 10), "a file with a truncated header");
+		verifyIgnored(file, new byte[0], "an empty file");
+
+		byte[] b = good.clone();
+		b[0] ^= 1;
+		verifyIgnored(file, b, "a file with the wrong magic number");
+
+		b = good.clone();
+		b[FINGERPRINT_OFFSET] ^= 1;
+		verifyIgnored(file, b, "a file rendered by different kernels");
+
+		//an entry that claims a huge size and no pixels:
+		b = good.clone();
+		ByteBuffer.wrap(b).putInt(INDEX_OFFSET+4, 65536).putInt(INDEX_OFFSET+20, 0);
+		verifyIgnored(file, b, "a file with an overflowing entry");
+
+		b = good.clone();
+		ByteBuffer.wrap(b).putInt(12, Integer.MAX_VALUE);
+		verifyIgnored(file, b, "a file with an impossible count");
+
+		//a damaged graphic fails its checksum, and then the whole file is ignored:
+		b = good.clone();
+		b[b.length-1] ^= 1;
+		Files.write(file.toPath(), b);
+		startSession(file);
+		RenderCache.Key damaged = key(3);
+		check(RenderCache.get(damaged)==null, "a graphic that fails its checksum should not be returned");
+		check(RenderCache.get(key(1))==null, "after a checksum fails the rest of the file should be ignored");
+		RenderCache.setPersistentFile(null);
+	}
+
+	/** Writes a file, starts a new session with it, and checks that nothing was read. */
+	private static void verifyIgnored(File file,byte[] contents,String description) throws IOException {
+		Files.write(file.toPath(), contents);
+		try {
+			startSession(file);
+			for(int a = 1; a<=3; a++) {
+				if(RenderCache.contains(key(a)) || RenderCache.get(key(a))!=null) {
+					check(false, description+" should be ignored");
+					return;
+				}
+			}
+		} catch(RuntimeException e) {
+			e.printStackTrace(System.out);
+			check(false, description+" should be ignored, not throw an exception");
+		}
+		RenderCache.setPersistentFile(null);
+	}
+
+	/** Forgets everything in memory, and maps the file again as a new JVM would. */
+	private static void startSession(File file) {
+		RenderCache.setPersistentFile(null);
+		RenderCache.clear();
+		RenderCache.setPersistentFile(file);
+	}
+
+	private static void reset(long capacity) {
+		RenderCache.setPersistentFile(null);
+		RenderCache.setCapacity(capacity);
+		RenderCache.clear();
+	}
+
+	private static RenderCache.Key key(int value) {
+		return key(value, SIZE);
+	}
+
+	private static RenderCache.Key key(int value,int size) {
+		return new RenderCache.Key(ColorPicker.RED, size, 0x888, value);
+	}
+
+	/** @return a test graphic whose pixels depend on <code>seed</code>. */
+	private static int[] graphic(int seed) {
+		int[] array = new int[SIZE*SIZE];
+		for(int a = 0; a<array.length; a++) {
+			array[a] = 0xff000000 | (seed*7919+a*31);
+		}
+		return array;
+	}
+
+	private static void check(boolean b,String message) {
+		if(!b) {
+			System.out.println(message);
+			failures++;
+		}
+	}
+}